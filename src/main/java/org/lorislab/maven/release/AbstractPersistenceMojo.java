@@ -15,26 +15,53 @@
  */
 package org.lorislab.maven.release;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.lorislab.maven.release.model.CompressionRule;
 import org.lorislab.maven.release.model.SearchPattern;
-import org.lorislab.maven.release.model.SearchResultItem;
 import org.lorislab.maven.release.persistence.PersistenceModifier;
 import org.lorislab.maven.release.persistence.PersistenceModifier10;
 import org.lorislab.maven.release.persistence.PersistenceModifier20;
 import org.lorislab.maven.release.persistence.PersistenceModifier21;
+import org.lorislab.maven.release.util.ArchiveCache;
 import org.lorislab.maven.release.util.FileSystemUtil;
-import org.lorislab.maven.release.util.ProcessingCallback;
-import org.lorislab.maven.release.util.XMLUtil;
+import org.lorislab.maven.release.util.SyncPolicy;
+import org.lorislab.maven.release.zip.ZipArchive;
+import org.lorislab.maven.release.zip.ZipArchiveEntry;
+import org.lorislab.maven.release.zip.ZipArchiveWriter;
+import org.lorislab.maven.release.zip.ZipCompression;
+import org.lorislab.maven.release.zip.ZipFanOutCallback;
+import org.lorislab.maven.release.zip.ZipScanCallback;
+import org.lorislab.maven.release.zip.ZipStreamException;
+import org.lorislab.maven.release.zip.ZipStreamScanner;
 
 /**
  * The update task.
@@ -46,50 +73,171 @@ public abstract class AbstractPersistenceMojo extends AbstractMojo {
     /**
      * The EJB/JAR file pattern.
      */
-    private static final SearchPattern JAR_SEARCH_PATTERN = new SearchPattern("^(.*?[.jar])", "jar");
+    private static final SearchPattern JAR_SEARCH_PATTERN = new SearchPattern("^(.*?\\.jar)$", "jar");
     /**
      * The WAR file pattern.
      */    
-    private static final SearchPattern WAR_SEARCH_PATTERN = new SearchPattern("^(.*?[.war])", "war");
+    private static final SearchPattern WAR_SEARCH_PATTERN = new SearchPattern("^(.*?\\.war)$", "war");
 
     /**
      * The set of archive patterns.
      */
-    protected static final Set<SearchPattern> PATTERNS = new HashSet<>();
+    protected static final Set<SearchPattern> PATTERNS;
     
     /**
      * The archive files patterns.
      */
     static {
-        PATTERNS.add(JAR_SEARCH_PATTERN);
-        PATTERNS.add(WAR_SEARCH_PATTERN);
+        Set<SearchPattern> tmp = new HashSet<>();
+        tmp.add(JAR_SEARCH_PATTERN);
+        tmp.add(WAR_SEARCH_PATTERN);
+        PATTERNS = Collections.unmodifiableSet(tmp);
     }
 
     /**
-     * The persistence modifier.
+     * The persistence modifier by the persistence version. The modifiers are
+     * immutable and shared by all executions and threads.
      */
-    private static final Map<String, PersistenceModifier> MODIFIER = new HashMap<>();
+    private static final Map<String, PersistenceModifier> MODIFIER;
 
     /**
      * Persistence version.
      */
     static {
-        MODIFIER.put("1.0", new PersistenceModifier10());
-        MODIFIER.put("2.0", new PersistenceModifier20());
-        MODIFIER.put("2.1", new PersistenceModifier21());
+        Map<String, PersistenceModifier> tmp = new HashMap<>();
+        tmp.put("1.0", new PersistenceModifier10());
+        tmp.put("2.0", new PersistenceModifier20());
+        tmp.put("2.1", new PersistenceModifier21());
+        MODIFIER = Collections.unmodifiableMap(tmp);
     }
     
     /**
      * The map of persistence file location.
      */
-    private static final Map<String, String> PERSISTENCE_XML = new HashMap<>();
+    private static final Map<String, String> PERSISTENCE_XML;
     
     /**
      * Static block.
      */
     static {
-        PERSISTENCE_XML.put("war", "\\WEB-INF\\classes\\META-INF\\persistence.xml");
-        PERSISTENCE_XML.put("jar", "\\META-INF\\persistence.xml");
+        Map<String, String> tmp = new HashMap<>();
+        tmp.put("war", "WEB-INF/classes/META-INF/persistence.xml");
+        tmp.put("jar", "META-INF/persistence.xml");
+        PERSISTENCE_XML = Collections.unmodifiableMap(tmp);
+    }
+
+    /**
+     * The map of nested module patterns by the archive type.
+     */
+    private static final Map<String, Set<SearchPattern>> MODULES;
+
+    /**
+     * Static block.
+     */
+    static {
+        Map<String, Set<SearchPattern>> tmp = new HashMap<>();
+        tmp.put("ear", PATTERNS);
+        tmp.put("war", Collections.singleton(new SearchPattern("^(WEB-INF/lib/[^/]*?\\.jar)$", "jar")));
+        tmp.put("jar", Collections.<SearchPattern>emptySet());
+        MODULES = Collections.unmodifiableMap(tmp);
+    }
+
+    /**
+     * The extensions of the already compressed files which are stored in the
+     * rewritten archives by default.
+     */
+    private static final String STORED_EXTENSIONS = "jar,war,ear,rar,zip,gz,png,jpg,jpeg,gif,woff,woff2";
+
+    /**
+     * The compression rules of the rewritten archive entries. The first
+     * matching rule is used, the already compressed nested archives and
+     * assets are stored if no rule matches.
+     */
+    @Parameter(required = false)
+    private List<CompressionRule> compressionRules;
+
+    /**
+     * The number of threads for the update of the nested modules. The default
+     * value {@code 0} uses the number of available processors.
+     */
+    @Parameter(required = false, defaultValue = "0")
+    private int threads;
+
+    /**
+     * The synchronization policy of the output files: {@code NONE},
+     * {@code FILE} or {@code DIRECTORY}. The output files are always written
+     * to the temporary sibling file and moved to the target path.
+     */
+    @Parameter(required = false, defaultValue = "NONE")
+    private SyncPolicy fsync;
+
+    /**
+     * The directory of the cache of the updated nested modules. The cache is
+     * shared by all executions which use the same directory, for example a
+     * directory in the local repository.
+     */
+    @Parameter(required = false, defaultValue = "${project.build.directory}/persistence-release-cache")
+    private String cacheDirectory;
+
+    /**
+     * The maximum size of the cache of the updated nested modules in
+     * megabytes. The default value {@code 0} disables the cache.
+     */
+    @Parameter(required = false, defaultValue = "0")
+    private long cacheSize;
+
+    /**
+     * The plugin version.
+     */
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    /**
+     * Gets the plugin version.
+     *
+     * @return the plugin version.
+     */
+    protected String getPluginVersion() {
+        return pluginVersion;
+    }
+
+    /**
+     * Gets the synchronization policy of the output files.
+     *
+     * @return the synchronization policy.
+     */
+    protected SyncPolicy getSyncPolicy() {
+        return fsync == null ? SyncPolicy.NONE : fsync;
+    }
+
+    /**
+     * Returns {@code true} if the goal forks the lifecycle to the
+     * prepare-package phase.
+     *
+     * @return {@code true} if the goal forks the lifecycle.
+     */
+    protected boolean isForked() {
+        return false;
+    }
+
+    /**
+     * Reports the forked lifecycle of the goal. The forked lifecycle runs
+     * after the project archive was packaged, so the time since the last
+     * modification of the project archive is the time of the fork.
+     *
+     * @param goal the corresponding goal without the forked lifecycle.
+     * @param artifact the project archive or {@code null}.
+     */
+    protected void reportFork(String goal, File artifact) {
+        if (!isForked()) {
+            return;
+        }
+        String time = "";
+        if (artifact != null && artifact.isFile()) {
+            time = " The forked lifecycle took " + Math.max(0, System.currentTimeMillis() - artifact.lastModified()) + " ms.";
+        }
+        getLog().warn("The goal forks the lifecycle to the prepare-package phase." + time
+                + " Use the goal '" + goal + "' in the package phase to avoid the fork.");
     }
 
     /**
@@ -109,42 +257,1006 @@ public abstract class AbstractPersistenceMojo extends AbstractMojo {
     }
    
     /**
-     * Updates the persistence XML files.
+     * Gets the filter property files by the release classifier.
+     *
+     * @param classifier the release classifier.
+     * @param properties the filter property file of the release classifier.
+     * @param classifiers the map of the release classifiers and the filter
+     * property files.
+     * @return the sorted map of the filter property files by the release
+     * classifier.
+     * @throws MojoExecutionException if the configuration is not valid.
+     */
+    protected static Map<String, String> getReleases(String classifier, String properties, Map<String, String> classifiers) throws MojoExecutionException {
+        Map<String, String> result = new TreeMap<>();
+        if (classifiers != null) {
+            result.putAll(classifiers);
+        }
+        if (classifier != null) {
+            if (properties == null) {
+                throw new MojoExecutionException("Missing the properties file for the classifier: " + classifier);
+            }
+            result.put(classifier, properties);
+        }
+        if (result.isEmpty()) {
+            throw new MojoExecutionException("Missing the classifier and properties or the classifiers configuration.");
+        }
+        return result;
+    }
+
+    /**
+     * Gets the location of the persistence XML file in the archive.
+     *
+     * @param type the archive type.
+     * @return the location of the persistence XML file or {@code null} if the
+     * archive type has no persistence XML file.
+     */
+    protected static String getPersistenceXml(String type) {
+        return PERSISTENCE_XML.get(type);
+    }
+
+    /**
+     * Returns {@code true} if the archive type is supported.
      *
-     * @param file the file.
-     * @param changeFiles the set of change files.
-     * @param tmpDir the temporary directory.
+     * @param type the archive type.
+     * @return {@code true} if the archive type is supported.
+     */
+    protected static boolean isSupported(String type) {
+        return MODULES.containsKey(type);
+    }
+
+    /**
+     * Updates the persistence XML files in the archive and in the nested
+     * modules of the archive. The source archive is streamed entry by entry
+     * to the target archive. Only the nested modules on the path to a changed
+     * persistence XML file are rewritten, all other entries are copied
+     * without decompression. The nested modules are updated in parallel in
+     * the work-stealing pool, the entries of the target archive keep the order
+     * of the source archive.
+     *
+     * @param source the source archive.
+     * @param target the target archive.
+     * @param type the archive type.
      * @param values the map of properties values.
+     * @return the set of changed persistence XML files.
+     * @throws MojoExecutionException if the compression rules are not valid.
      */
-    protected void updatePersistenceXml(final SearchResultItem file, final Set<Path> changeFiles, final Path tmpDir, final Map<String, String> values) {        
-        FileSystemUtil.getFileInZip(file.getPath(),  PERSISTENCE_XML.get(file.getExtension()), new ProcessingCallback() {
+    protected Set<String> updateArchive(final Path source, final Path target, final String type, final Map<String, String> values) throws MojoExecutionException {
+        return updateArchive(source, target, null, type, values);
+    }
+
+    /**
+     * Updates the persistence XML files in the archive and extracts the
+     * target archive to the target directory in the same pass.
+     *
+     * @param source the source archive.
+     * @param target the target archive.
+     * @param targetDir the target directory or {@code null}.
+     * @param type the archive type.
+     * @param values the map of properties values.
+     * @return the set of changed persistence XML files.
+     * @see #updateArchive(java.nio.file.Path, java.nio.file.Path, java.lang.String, java.util.Map)
+     * @throws MojoExecutionException if the compression rules are not valid.
+     */
+    protected Set<String> updateArchive(final Path source, final Path target, final Path targetDir, final String type, final Map<String, String> values) throws MojoExecutionException {
+        return updateArchive(source, null, Collections.singletonList(target), Collections.singletonList(targetDir), type, Collections.singletonList(values));
+    }
+
+    /**
+     * Updates the persistence XML files in the archive for several target
+     * archives in one pass. The source archive is read and scanned only once,
+     * each persistence XML file is updated with the properties values of the
+     * corresponding target archive and the unchanged entries are copied to all
+     * target archives.
+     *
+     * @param source the source archive.
+     * @param exploded the exploded directory of the source archive or
+     * {@code null}. The nested modules and persistence XML files are read
+     * from the exploded directory if they match the archive entry, which
+     * avoids the decompression of the nested modules.
+     * @param targets the list of target archives.
+     * @param targetDirs the list of target directories with one item for each
+     * target archive or {@code null}. The target archives are extracted to the
+     * target directories in the same pass.
+     * @param type the archive type.
+     * @param values the list of properties values for each target archive.
+     * @return the set of changed persistence XML files.
+     * @see #updateArchive(java.nio.file.Path, java.nio.file.Path, java.lang.String, java.util.Map)
+     * @throws MojoExecutionException if the compression rules are not valid.
+     */
+    protected Set<String> updateArchive(final Path source, final ExplodedDirectory exploded, final List<Path> targets, final List<Path> targetDirs, final String type, final List<Map<String, String>> values) throws MojoExecutionException {
+        ForkJoinPool pool = createPool();
+        try {
+            return updateArchive(source, exploded, targets, targetDirs, type, values, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Updates the persistence XML files in the archive in the worker pool.
+     * The pool can be shared by the updates of several archives.
+     *
+     * @param source the source archive.
+     * @param exploded the exploded directory of the source archive or
+     * {@code null}.
+     * @param targets the list of target archives.
+     * @param targetDirs the list of target directories or {@code null}.
+     * @param type the archive type.
+     * @param values the list of properties values for each target archive.
+     * @param pool the worker pool or {@code null} for the sequential update.
+     * @return the set of changed persistence XML files.
+     * @see #updateArchive(java.nio.file.Path, org.lorislab.maven.release.AbstractPersistenceMojo.ExplodedDirectory, java.util.List, java.util.List, java.lang.String, java.util.List)
+     * @throws MojoExecutionException if the compression rules are not valid.
+     */
+    protected Set<String> updateArchive(final Path source, final ExplodedDirectory exploded, final List<Path> targets, final List<Path> targetDirs, final String type, final List<Map<String, String>> values, final ForkJoinPool pool) throws MojoExecutionException {
+        final Set<String> changeFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        ZipCompression compression = createCompression();
+        ArchiveCache cache = createCache();
+        List<String> keys = new ArrayList<>(values.size());
+        for (Map<String, String> value : values) {
+            keys.add(cache == null ? null : createValuesKey(value, compression));
+        }
+        UpdateContext context = new UpdateContext(values, keys, changeFiles, compression, cache);
+
+        if (pool != null) {
+            getLog().debug("Update of the archive " + source + " with " + pool.getParallelism() + " threads");
+        }
+        FileSystemUtil.copyZip(source, targets, targetDirs, createCallback(type, "", exploded, context), compression, getSyncPolicy(), pool);
+        logCompression(compression);
+        if (context.duplicates.sum() > 0) {
+            getLog().info("Collapsed " + context.duplicates.sum() + " duplicate nested modules");
+        }
+        if (cache != null && cache.getHits() + cache.getMisses() > 0) {
+            getLog().info("Module cache " + cacheDirectory + ": " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+        }
+        return changeFiles;
+    }
+
+    /**
+     * Creates the worker pool for the update of the nested modules.
+     *
+     * @return the worker pool or {@code null} for the sequential update.
+     */
+    protected ForkJoinPool createPool() {
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        if (parallelism == 1) {
+            return null;
+        }
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Creates the compression strategy of the rewritten entries from the
+     * compression rules.
+     *
+     * @return the compression strategy.
+     * @throws MojoExecutionException if the compression level or the pattern
+     * of a rule is not valid.
+     */
+    protected ZipCompression createCompression() throws MojoExecutionException {
+        ZipCompression result = new ZipCompression();
+        if (compressionRules != null) {
+            for (CompressionRule rule : compressionRules) {
+                String level = rule.getLevel() == null ? "default" : rule.getLevel().trim();
+                int method = ZipArchiveEntry.DEFLATED;
+                int value = Deflater.DEFAULT_COMPRESSION;
+                if ("stored".equalsIgnoreCase(level)) {
+                    method = ZipArchiveEntry.STORED;
+                } else if (!"default".equalsIgnoreCase(level)) {
+                    try {
+                        value = Integer.parseInt(level);
+                    } catch (NumberFormatException ex) {
+                        throw new MojoExecutionException("Error parsing the compression level " + level + " of the parameter compressionRules, supported values are stored, default or 0-9.", ex);
+                    }
+                    if (value < Deflater.NO_COMPRESSION || value > Deflater.BEST_COMPRESSION) {
+                        throw new MojoExecutionException("Error parsing the compression level " + level + " of the parameter compressionRules, supported values are stored, default or 0-9.");
+                    }
+                }
+                if (rule.getPattern() != null) {
+                    try {
+                        result.addRule(rule.getPattern(), method, value);
+                    } catch (PatternSyntaxException ex) {
+                        throw new MojoExecutionException("Error parsing the pattern " + rule.getPattern() + " of the parameter compressionRules.", ex);
+                    }
+                }
+                if (rule.getExtensions() != null) {
+                    result.addExtensions(rule.getExtensions(), method, value);
+                }
+            }
+        }
+        result.addExtensions(STORED_EXTENSIONS, ZipArchiveEntry.STORED, Deflater.DEFAULT_COMPRESSION);
+        return result;
+    }
+
+    /**
+     * Logs the statistics of the compression strategy.
+     *
+     * @param compression the compression strategy.
+     */
+    private void logCompression(ZipCompression compression) {
+        if (compression.getStoredEntries() > 0) {
+            getLog().info("Stored " + compression.getStoredEntries() + " rewritten entries without compression ("
+                    + compression.getStoredSize() + " bytes), estimated compression time saved: " + compression.getSavedTime()
+                    + " ms, estimated size increase: " + compression.getSavedSize() + " bytes");
+        }
+        if (compression.getDeflatedEntries() > 0) {
+            getLog().info("Deflated " + compression.getDeflatedEntries() + " rewritten entries ("
+                    + compression.getDeflatedSize() + " to " + compression.getDeflatedLength() + " bytes) in " + compression.getDeflatedTime() + " ms");
+        }
+    }
+
+    /**
+     * Creates the archive update callback.
+     *
+     * @param type the archive type.
+     * @param path the archive path in the root archive.
+     * @param exploded the exploded directory of the archive or {@code null}.
+     * @param context the update context.
+     * @return the archive update callback.
+     */
+    private ZipFanOutCallback createCallback(final String type, final String path, final ExplodedDirectory exploded, final UpdateContext context) {
+        final String persistenceXml = PERSISTENCE_XML.get(type);
+        return new ZipFanOutCallback() {
+
+            /**
+             * The registered modules flag.
+             */
+            private boolean registered;
+
             @Override
-            public void execute(Path path) throws Exception {
-                changeFiles.add(path);
-
-                getLog().info("Start update of the persistence.xml in the file: " + file.getPath().toString());
-
-                // copy from archive
-                Path dir = FileSystemUtil.createDirectory(tmpDir, file.getPath().getFileName().toString());
-                Path tmpFile = FileSystemUtil.createDirectory(Paths.get(dir.toString() + path.toString()), null);
-                Files.copy(path, tmpFile, StandardCopyOption.REPLACE_EXISTING);
-
-                String version = XMLUtil.getXMLVersion(tmpFile);
-                getLog().debug("Version of the persistence.xml : " + file.toString() + " version: " + version);
-                
-                final PersistenceModifier modifier = MODIFIER.get(version);
-                if (modifier == null) {
-                    throw new MojoExecutionException("Missing the persistence.xml modifier for the version: " + version);
-                }                
-                
-                // change the persistence.xml
-                modifier.modifier(tmpFile, values);
-
-                // copy back to archive
-                Files.copy(tmpFile, path, StandardCopyOption.REPLACE_EXISTING);
-                
-                getLog().info("Finished update of the persistence.xml in the file: " + file.getPath().toString());
+            public byte[][] execute(ZipArchive archive, ZipArchiveEntry entry) throws Exception {
+                synchronized (this) {
+                    // the modules of the archive are registered before the first module is updated
+                    if (!registered) {
+                        context.register(archive, type);
+                        registered = true;
+                    }
+                }
+                byte[][] result = new byte[context.values.size()][];
+                if (entry.getName().equals(persistenceXml)) {
+                    getLog().info("Update of the persistence.xml in the file: " + path + entry.getName());
+                    context.changeFiles.add(path + entry.getName());
+                    byte[] data = readExplodedEntry(exploded, entry);
+                    if (data == null) {
+                        data = archive.readEntry(entry);
+                    }
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = updatePersistenceXml(path + entry.getName(), data, context.values.get(i));
+                    }
+                    return result;
+                }
+
+                String module = getModuleType(type, entry.getName());
+                if (module == null) {
+                    return null;
+                }
+                String key = context.createKey(entry, module);
+                try {
+                    return updateModule(archive, entry, module, key);
+                } finally {
+                    context.release(key);
+                }
+            }
+
+            /**
+             * Updates the nested module of the archive.
+             *
+             * @param archive the archive.
+             * @param entry the module entry.
+             * @param module the module type.
+             * @param key the key of the module update.
+             * @return the updated module for each target archive or
+             * {@code null} if the module does not contain a persistence XML
+             * file.
+             * @throws Exception if the method fails.
+             */
+            private byte[][] updateModule(ZipArchive archive, ZipArchiveEntry entry, String module, String key) throws Exception {
+                // the module from the exploded directory is checked without decompression
+                Path file = exploded == null ? null : exploded.getFile(entry);
+                byte[] data;
+                if (file != null ? containsPersistenceXml(file, module) : containsPersistenceXml(archive, entry, module)) {
+                    // only the module with the persistence XML file is loaded to the memory
+                    data = file != null ? Files.readAllBytes(file) : archive.readEntry(entry);
+                } else {
+                    return null;
+                }
+
+                // the identical modules are updated only once
+                final String name = path + entry.getName();
+                final String moduleType = module;
+                final byte[] moduleData = data;
+                final String moduleHash = FileSystemUtil.hash(data, data.length);
+                ModuleUpdate update = context.update(key, moduleHash, new Callable<ModuleUpdate>() {
+                    @Override
+                    public ModuleUpdate call() throws Exception {
+                        return AbstractPersistenceMojo.this.updateModule(name, moduleType, moduleData, moduleHash, context);
+                    }
+                });
+                if (!name.equals(update.name)) {
+                    context.duplicates.increment();
+                    getLog().info("Reused the update of the identical file " + update.name + " for the file: " + name);
+                }
+                for (String change : update.changes) {
+                    context.changeFiles.add(name + "!/" + change);
+                }
+                return update.data;
+            }
+        };
+    }
+
+    /**
+     * Updates the nested module. The updated module is taken from the cache
+     * by the module and properties hash if possible.
+     *
+     * @param name the module path in the root archive.
+     * @param module the module type.
+     * @param data the module data.
+     * @param moduleHash the hash of the module data.
+     * @param context the update context.
+     * @return the module update.
+     * @throws Exception if the method fails.
+     */
+    private ModuleUpdate updateModule(String name, String module, byte[] data, String moduleHash, UpdateContext context) throws Exception {
+        getLog().info("Start update of the persistence.xml in the file: " + name);
+        String prefix = name + "!/";
+        byte[][] result = new byte[context.values.size()][];
+        List<String> changes = null;
+
+        String[] keys = new String[result.length];
+        List<Integer> missing = new ArrayList<>(result.length);
+        for (int i = 0; i < result.length; i++) {
+            ArchiveCache.Entry cached = null;
+            if (context.cache != null) {
+                keys[i] = ArchiveCache.createKey(moduleHash, module, context.keys.get(i));
+                cached = context.cache.get(keys[i]);
+            }
+            if (cached != null) {
+                result[i] = cached.getData();
+                changes = cached.getChanges();
+            } else {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            getLog().info("Reused the cached update of the file: " + name);
+            return new ModuleUpdate(name, result, changes);
+        }
+
+        UpdateContext moduleContext = context.select(missing);
+        List<ByteArrayOutputStream> outputs = new ArrayList<>(missing.size());
+        List<ZipArchiveWriter> writers = new ArrayList<>(missing.size());
+        try (ZipArchive moduleArchive = new ZipArchive(name, data, data.length)) {
+            for (int i = 0; i < missing.size(); i++) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(data.length);
+                outputs.add(output);
+                writers.add(new ZipArchiveWriter(output));
+            }
+            FileSystemUtil.copyZip(moduleArchive, writers, null, createCallback(module, prefix, null, moduleContext), context.compression);
+        } finally {
+            for (ZipArchiveWriter writer : writers) {
+                writer.close();
+            }
+        }
+
+        changes = new ArrayList<>();
+        for (String change : moduleContext.changeFiles) {
+            changes.add(change.substring(prefix.length()));
+        }
+        Collections.sort(changes);
+        for (int i = 0; i < missing.size(); i++) {
+            int index = missing.get(i);
+            result[index] = outputs.get(i).toByteArray();
+            if (keys[index] != null) {
+                context.cache.put(keys[index], result[index], changes);
+            }
+        }
+
+        getLog().info("Finished update of the persistence.xml in the file: " + name);
+        return new ModuleUpdate(name, result, changes);
+    }
+
+    /**
+     * Creates the cache of the updated nested modules.
+     *
+     * @return the cache of the updated nested modules or {@code null} if the
+     * cache is disabled.
+     */
+    private ArchiveCache createCache() {
+        if (cacheDirectory == null || cacheDirectory.isEmpty() || cacheSize <= 0) {
+            return null;
+        }
+        return new ArchiveCache(Paths.get(cacheDirectory), cacheSize * 1024L * 1024L);
+    }
+
+    /**
+     * Creates the cache key part of the properties values. The key contains
+     * the plugin version and the compression rules which change the content
+     * of the updated module.
+     *
+     * @param values the properties values.
+     * @param compression the compression strategy.
+     * @return the cache key part of the properties values.
+     */
+    private String createValuesKey(Map<String, String> values, ZipCompression compression) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : new TreeMap<>(values).entrySet()) {
+            String value = String.valueOf(e.getValue());
+            sb.append(e.getKey().length()).append(':').append(e.getKey());
+            sb.append(value.length()).append(':').append(value);
+        }
+        return ArchiveCache.createKey(String.valueOf(pluginVersion), compression.getSignature(), sb.toString());
+    }
+
+    /**
+     * The context of the archive update.
+     */
+    private static final class UpdateContext {
+
+        /**
+         * The list of properties values for each target archive.
+         */
+        private final List<Map<String, String>> values;
+
+        /**
+         * The cache key part of the properties values for each target
+         * archive.
+         */
+        private final List<String> keys;
+
+        /**
+         * The set of changed persistence XML files.
+         */
+        private final Set<String> changeFiles;
+
+        /**
+         * The compression strategy of the rewritten entries.
+         */
+        private final ZipCompression compression;
+
+        /**
+         * The cache of the updated nested modules or {@code null}.
+         */
+        private final ArchiveCache cache;
+
+        /**
+         * The indexes of the target archives in the root context.
+         */
+        private final List<Integer> indexes;
+
+        /**
+         * The pending updates of the nested modules by the module key. The
+         * map is shared by all contexts of the update.
+         */
+        private final ConcurrentMap<String, PendingUpdate> updates;
+
+        /**
+         * The number of the duplicate nested modules.
+         */
+        private final LongAdder duplicates;
+
+        /**
+         * The default constructor.
+         *
+         * @param values the list of properties values.
+         * @param keys the cache key part of the properties values.
+         * @param changeFiles the set of changed persistence XML files.
+         * @param compression the compression strategy.
+         * @param cache the cache of the updated nested modules or
+         * {@code null}.
+         */
+        UpdateContext(List<Map<String, String>> values, List<String> keys, Set<String> changeFiles, ZipCompression compression, ArchiveCache cache) {
+            this(values, keys, changeFiles, compression, cache, null, new ConcurrentHashMap<String, PendingUpdate>(), new LongAdder());
+        }
+
+        /**
+         * The constructor of the selected context.
+         *
+         * @param values the list of properties values.
+         * @param keys the cache key part of the properties values.
+         * @param changeFiles the set of changed persistence XML files.
+         * @param compression the compression strategy.
+         * @param cache the cache of the updated nested modules or
+         * {@code null}.
+         * @param indexes the indexes of the target archives in the root
+         * context or {@code null} for the root context.
+         * @param updates the pending updates of the nested modules.
+         * @param duplicates the number of the duplicate nested modules.
+         */
+        private UpdateContext(List<Map<String, String>> values, List<String> keys, Set<String> changeFiles, ZipCompression compression, ArchiveCache cache,
+                List<Integer> indexes, ConcurrentMap<String, PendingUpdate> updates, LongAdder duplicates) {
+            this.values = values;
+            this.keys = keys;
+            this.changeFiles = changeFiles;
+            this.compression = compression;
+            this.cache = cache;
+            this.updates = updates;
+            this.duplicates = duplicates;
+            if (indexes == null) {
+                indexes = new ArrayList<>(values.size());
+                for (int i = 0; i < values.size(); i++) {
+                    indexes.add(i);
+                }
+            }
+            this.indexes = indexes;
+        }
+
+        /**
+         * Creates the key of the module update. The key contains the CRC and
+         * the size of the central directory, the module type and the target
+         * archives, so the identical modules are known before they are read.
+         *
+         * @param entry the module entry.
+         * @param module the module type.
+         * @return the key of the module update.
+         */
+        String createKey(ZipArchiveEntry entry, String module) {
+            return entry.getCrc() + ":" + entry.getSize() + ":" + module + ":" + indexes;
+        }
+
+        /**
+         * Registers the nested modules of the archive. Each registered module
+         * is released by {@link #release(java.lang.String)} after its update,
+         * the pending update is removed after the last release.
+         *
+         * @param archive the archive.
+         * @param type the archive type.
+         */
+        void register(ZipArchive archive, String type) {
+            for (ZipArchiveEntry entry : archive.getEntries()) {
+                String module = getModuleType(type, entry.getName());
+                if (module == null) {
+                    continue;
+                }
+                String key = createKey(entry, module);
+                PendingUpdate pending = updates.get(key);
+                while (pending == null || !pending.acquire()) {
+                    if (pending != null) {
+                        updates.remove(key, pending);
+                    }
+                    PendingUpdate tmp = new PendingUpdate();
+                    pending = updates.putIfAbsent(key, tmp);
+                    if (pending == null) {
+                        pending = tmp;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Releases the registered module.
+         *
+         * @param key the key of the module update.
+         */
+        void release(String key) {
+            PendingUpdate pending = updates.get(key);
+            if (pending != null && pending.release()) {
+                updates.remove(key, pending);
+            }
+        }
+
+        /**
+         * Gets the update of the nested module. The first call for the key
+         * and the module hash forks the update, the other calls join the
+         * forked update.
+         *
+         * @param key the key of the module update.
+         * @param hash the hash of the module data.
+         * @param callable the module update.
+         * @return the module update.
+         */
+        ModuleUpdate update(String key, String hash, Callable<ModuleUpdate> callable) {
+            ForkJoinTask<ModuleUpdate> task = ForkJoinTask.adapt(callable);
+            PendingUpdate pending = updates.get(key);
+            if (pending == null) {
+                return task.invoke();
+            }
+            ForkJoinTask<ModuleUpdate> tmp = pending.tasks.putIfAbsent(hash, task);
+            if (tmp != null) {
+                return tmp.join();
+            }
+            if (!ForkJoinTask.inForkJoinPool()) {
+                // the sequential update has no concurrent duplicates
+                return task.invoke();
+            }
+            // the forked update can be executed by any thread which joins it
+            return task.fork().join();
+        }
+
+        /**
+         * Creates the context of the selected target archives with the new
+         * set of changed files.
+         *
+         * @param indexes the indexes of the selected target archives.
+         * @return the context of the selected target archives.
+         */
+        UpdateContext select(List<Integer> indexes) {
+            List<Map<String, String>> tmpValues = new ArrayList<>(indexes.size());
+            List<String> tmpKeys = new ArrayList<>(indexes.size());
+            List<Integer> tmpIndexes = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                tmpValues.add(values.get(index));
+                tmpKeys.add(keys.get(index));
+                tmpIndexes.add(this.indexes.get(index));
+            }
+            return new UpdateContext(tmpValues, tmpKeys, Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()), compression, cache,
+                    tmpIndexes, updates, duplicates);
+        }
+    }
+
+    /**
+     * The exploded directory of the archive. Each file of the exploded
+     * directory is checked against the archive entry only once.
+     */
+    protected static final class ExplodedDirectory {
+
+        /**
+         * The directory.
+         */
+        private final Path dir;
+
+        /**
+         * The checked files by the entry name. The missing or not matching
+         * files are mapped to the directory.
+         */
+        private final ConcurrentMap<String, Path> files = new ConcurrentHashMap<>();
+
+        /**
+         * The default constructor.
+         *
+         * @param dir the directory.
+         */
+        private ExplodedDirectory(Path dir) {
+            this.dir = dir.normalize();
+        }
+
+        /**
+         * Gets the file of the archive entry.
+         *
+         * @param entry the archive entry.
+         * @return the file or {@code null} if the file does not exist or does
+         * not match the archive entry.
+         * @throws IOException if the method fails.
+         */
+        Path getFile(ZipArchiveEntry entry) throws IOException {
+            if (entry.isDirectory()) {
+                return null;
+            }
+            Path file = files.get(entry.getName());
+            if (file == null) {
+                file = checkFile(entry);
+                files.put(entry.getName(), file);
+            }
+            if (file == dir) {
+                return null;
+            }
+            return file;
+        }
+
+        /**
+         * Checks the file of the archive entry. The file matches the entry if
+         * the size and the modification time match the central directory,
+         * the CRC of the file is computed only if the modification time does
+         * not match.
+         *
+         * @param entry the archive entry.
+         * @return the file or the directory if the file does not exist or
+         * does not match the archive entry.
+         * @throws IOException if the method fails.
+         */
+        private Path checkFile(ZipArchiveEntry entry) throws IOException {
+            Path file = dir.resolve(entry.getName()).normalize();
+            if (!file.startsWith(dir) || !Files.isRegularFile(file) || Files.size(file) != entry.getSize()) {
+                return dir;
+            }
+            // the MS-DOS time has the resolution of two seconds
+            if (Math.abs(Files.getLastModifiedTime(file).toMillis() - entry.getTime()) < 2000) {
+                return file;
+            }
+            CRC32 crc = new CRC32();
+            try (InputStream input = Files.newInputStream(file)) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = input.read(buffer)) != -1) {
+                    crc.update(buffer, 0, n);
+                }
+            }
+            if (crc.getValue() != entry.getCrc()) {
+                return dir;
+            }
+            return file;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public String toString() {
+            return dir.toString();
+        }
+    }
+
+    /**
+     * The pending update of the identical nested modules.
+     */
+    private static final class PendingUpdate {
+
+        /**
+         * The number of the registered modules which are not released.
+         */
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        /**
+         * The module updates by the hash of the module data.
+         */
+        private final ConcurrentMap<String, ForkJoinTask<ModuleUpdate>> tasks = new ConcurrentHashMap<>();
+
+        /**
+         * Registers the next module.
+         *
+         * @return {@code false} if the pending update was already released.
+         */
+        boolean acquire() {
+            while (true) {
+                int value = count.get();
+                if (value == 0) {
+                    return false;
+                }
+                if (count.compareAndSet(value, value + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Releases the module.
+         *
+         * @return {@code true} if the last module was released.
+         */
+        boolean release() {
+            if (count.decrementAndGet() == 0) {
+                tasks.clear();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The update of the nested module.
+     */
+    private static final class ModuleUpdate {
+
+        /**
+         * The path of the updated module in the root archive.
+         */
+        private final String name;
+
+        /**
+         * The updated module data for each target archive.
+         */
+        private final byte[][] data;
+
+        /**
+         * The list of the changed files in the module.
+         */
+        private final List<String> changes;
+
+        /**
+         * The default constructor.
+         *
+         * @param name the path of the updated module in the root archive.
+         * @param data the updated module data for each target archive.
+         * @param changes the list of the changed files in the module.
+         */
+        ModuleUpdate(String name, byte[][] data, List<String> changes) {
+            this.name = name;
+            this.data = data;
+            this.changes = changes;
+        }
+    }
+
+    /**
+     * Checks if the archive contains a persistence XML file. Only the central
+     * directory of the archive is read to find the persistence XML file, the
+     * nested modules are scanned as a stream only if the archive itself does
+     * not contain the persistence XML file. No data is copied.
+     *
+     * @param file the archive file.
+     * @param type the archive type.
+     * @return {@code true} if the archive or a nested module contains a
+     * persistence XML file.
+     */
+    protected static boolean containsPersistenceXml(Path file, String type) {
+        return containsPersistenceXml(file, null, type);
+    }
+
+    /**
+     * Checks if the archive contains a persistence XML file. Only the central
+     * directory of the nested modules is read from the exploded directory if
+     * they match the archive entry.
+     *
+     * @param file the archive file.
+     * @param exploded the exploded directory of the archive or {@code null}.
+     * @param type the archive type.
+     * @return {@code true} if the archive or a nested module contains a
+     * persistence XML file.
+     * @see #containsPersistenceXml(java.nio.file.Path, java.lang.String)
+     */
+    protected static boolean containsPersistenceXml(Path file, ExplodedDirectory exploded, String type) {
+        try (ZipArchive archive = new ZipArchive(file)) {
+            return containsPersistenceXml(archive, exploded, type);
+        } catch (Exception ex) {
+            throw new RuntimeException("Error reading the archive " + file.toString(), ex);
+        }
+    }
+
+    /**
+     * Checks if the archive contains a persistence XML file.
+     *
+     * @param archive the archive.
+     * @param exploded the exploded directory of the archive or {@code null}.
+     * @param type the archive type.
+     * @return {@code true} if the archive or a nested module contains a
+     * persistence XML file.
+     * @throws Exception if the method fails.
+     */
+    private static boolean containsPersistenceXml(ZipArchive archive, ExplodedDirectory exploded, String type) throws Exception {
+        if (archive.getEntry(PERSISTENCE_XML.get(type)) != null) {
+            return true;
+        }
+        for (ZipArchiveEntry entry : archive.getEntries()) {
+            String module = getModuleType(type, entry.getName());
+            if (module != null) {
+                Path file = exploded == null ? null : exploded.getFile(entry);
+                if (file != null ? containsPersistenceXml(file, module) : containsPersistenceXml(archive, entry, module)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the exploded directory of the archive. The exploded directory is
+     * used only if it was not modified after the archive was created.
+     *
+     * @param dir the exploded directory.
+     * @param archive the archive file.
+     * @return the exploded directory or {@code null} if the directory does
+     * not exist or is newer than the archive.
+     */
+    protected static ExplodedDirectory getExplodedDirectory(Path dir, Path archive) {
+        try {
+            if (Files.isDirectory(dir) && Files.getLastModifiedTime(dir).compareTo(Files.getLastModifiedTime(archive)) <= 0) {
+                return new ExplodedDirectory(dir);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading the exploded directory " + dir.toString(), ex);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the entry data from the exploded directory.
+     *
+     * @param exploded the exploded directory or {@code null}.
+     * @param entry the archive entry.
+     * @return the entry data or {@code null} if the exploded file does not
+     * exist or does not match the archive entry.
+     * @throws IOException if the method fails.
+     */
+    private static byte[] readExplodedEntry(ExplodedDirectory exploded, ZipArchiveEntry entry) throws IOException {
+        if (exploded == null) {
+            return null;
+        }
+        Path file = exploded.getFile(entry);
+        if (file == null) {
+            return null;
+        }
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * Checks if the nested module contains a persistence XML file. The module
+     * is scanned as a stream without loading it to the memory. The module
+     * which can not be scanned as a stream (stored entries with the data
+     * descriptor or ZIP64 entries) is loaded and read by the central
+     * directory.
+     *
+     * @param archive the archive.
+     * @param entry the module entry.
+     * @param type the module type.
+     * @return {@code true} if the module contains a persistence XML file.
+     * @throws Exception if the method fails.
+     */
+    private static boolean containsPersistenceXml(ZipArchive archive, ZipArchiveEntry entry, String type) throws Exception {
+        try (InputStream input = archive.getInputStream(entry)) {
+            return containsPersistenceXml(input, type);
+        } catch (ZipStreamException ex) {
+            byte[] data = archive.readEntry(entry);
+            try (ZipArchive module = new ZipArchive(archive.getName() + "!/" + entry.getName(), data, data.length)) {
+                return containsPersistenceXml(module, (ExplodedDirectory) null, type);
+            }
+        }
+    }
+
+    /**
+     * Checks if the module stream contains a persistence XML file.
+     *
+     * @param input the module stream.
+     * @param type the module type.
+     * @return {@code true} if the module contains a persistence XML file.
+     * @throws Exception if the method fails.
+     */
+    private static boolean containsPersistenceXml(InputStream input, final String type) throws Exception {
+        final String persistenceXml = PERSISTENCE_XML.get(type);
+        return ZipStreamScanner.scan(input, new ZipScanCallback() {
+            @Override
+            public boolean accept(String name) {
+                return getModuleType(type, name) != null;
+            }
+
+            @Override
+            public boolean execute(String name, InputStream data) throws Exception {
+                if (name.equals(persistenceXml)) {
+                    return true;
+                }
+                return data != null && containsPersistenceXml(data, getModuleType(type, name));
             }
         });
     }
+
+    /**
+     * Updates the persistence XML file to the target file.
+     *
+     * @param source the persistence XML file.
+     * @param target the updated persistence XML file.
+     * @param values the map of properties values.
+     */
+    protected void updatePersistenceXml(Path source, Path target, Map<String, String> values) {
+        try {
+            byte[] data = updatePersistenceXml(source.toString(), Files.readAllBytes(source), values);
+            FileSystemUtil.writeFile(target, data, getSyncPolicy());
+        } catch (Exception ex) {
+            throw new RuntimeException("Error updating the persistence.xml " + source.toString() + " to the file " + target.toString(), ex);
+        }
+    }
+
+    /**
+     * Updates the persistence XML data. The version is detected by the same
+     * reader which modifies the data.
+     *
+     * @param name the module name.
+     * @param data the persistence XML data.
+     * @param values the map of properties values.
+     * @return the updated persistence XML data.
+     */
+    private byte[] updatePersistenceXml(String name, byte[] data, Map<String, String> values) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(data.length);
+        String version = PersistenceModifier.modifier(new ByteArrayInputStream(data), result, values, MODIFIER);
+        getLog().debug("Version of the persistence.xml : " + name + " version: " + version);
+        return result.toByteArray();
+    }
+
+    /**
+     * Gets the type of the nested module.
+     *
+     * @param type the archive type.
+     * @param name the entry name.
+     * @return the module type or {@code null} if the entry is not a module.
+     */
+    private static String getModuleType(String type, String name) {
+        Set<SearchPattern> patterns = MODULES.get(type);
+        if (patterns != null) {
+            for (SearchPattern pattern : patterns) {
+                if (pattern.getPattern().matcher(name).matches()) {
+                    return pattern.getExtensions();
+                }
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2015 Andrej Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.lorislab.maven.release.util.FileSystemUtil;
+
+/**
+ * The deployment task. The base class of the goals with and
+ * without the forked lifecycle.
+ *
+ * @author Andrej Petras
+ */
+public abstract class AbstractPersistenceReleaseMojo extends AbstractPersistenceMojo {
+
+    /**
+     * The fingerprint key of the release archive size.
+     */
+    private static final String OUTPUT_SIZE = "output.size";
+
+    /**
+     * The fingerprint key of the release archive modification time.
+     */
+    private static final String OUTPUT_MODIFIED = "output.modified";
+
+    /**
+     * The release archive classifier.
+     */
+    @Parameter(required = false)
+    private String classifier;
+
+    /**
+     * The map of the release archive classifiers and the filter property
+     * files. All release archives are created in one pass of the project
+     * archive.
+     */
+    @Parameter(required = false)
+    private Map<String, String> classifiers;
+
+    /**
+     * The MAVEN ProjectHelper.
+     */
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    /**
+     * The MAVEN project.
+     */
+    @Component
+    protected MavenProject project;
+
+    /**
+     * The filter property file of the release archive classifier.
+     */
+    @Parameter(required = false)
+    private String properties;
+
+    /**
+     * The create release directory flag.
+     */
+    @Parameter(required = false, defaultValue = "false")
+    private boolean releaseDir;
+
+    /**
+     * The incremental build flag. The release archive is attached without
+     * update if the fingerprint of the inputs did not change.
+     */
+    @Parameter(required = false, defaultValue = "true")
+    private boolean incremental;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+
+        reportFork("release-package", project.getArtifact().getFile());
+
+        // the filter files by the classifier
+        Map<String, String> releases = getReleases(classifier, properties, classifiers);
+
+        // release file: tarhet/project.ear
+        if (project.getArtifact().getFile() == null) {
+            throw new MojoExecutionException("The project artifact is not packaged. Execute the goal in the package phase.");
+        }
+        Path releaseFile = project.getArtifact().getFile().toPath();
+
+        // build directory: target
+        Path buildDir = Paths.get(project.getBuild().getDirectory());
+
+        // build release dir: target/project
+        Path buildReleaseDir = buildDir.resolve(project.getBuild().getFinalName());
+
+        if (isSupported(project.getPackaging())) {
+
+            // the fingerprints of the inputs: target/persistence-release
+            Map<String, Properties> fingerprints = new TreeMap<>();
+            Path fingerprintDir = null;
+            if (incremental) {
+                fingerprintDir = FileSystemUtil.createDirectory(buildDir, "persistence-release");
+                String artifactHash = FileSystemUtil.hash(releaseFile);
+                Iterator<Entry<String, String>> iter = releases.entrySet().iterator();
+                while (iter.hasNext()) {
+                    Entry<String, String> release = iter.next();
+                    Properties fingerprint = createFingerprint(artifactHash, release.getKey(), release.getValue());
+                    Path releasePersistenceFile = buildDir.resolve(buildReleaseDir.getFileName() + "-" + release.getKey() + "." + project.getPackaging());
+                    Path fingerprintFile = fingerprintDir.resolve(releasePersistenceFile.getFileName() + ".properties");
+                    Path releasePersistenceDir = buildDir.resolve(buildReleaseDir.getFileName() + "-" + release.getKey());
+                    if (isUpToDate(fingerprintFile, fingerprint, releasePersistenceFile, releasePersistenceDir)) {
+                        getLog().info("The release archive is up to date: " + releasePersistenceFile);
+                        projectHelper.attachArtifact(project, releasePersistenceFile.toFile(), release.getKey());
+                        iter.remove();
+                    } else {
+                        FileSystemUtil.delete(fingerprintFile);
+                        fingerprints.put(release.getKey(), fingerprint);
+                    }
+                }
+                if (releases.isEmpty()) {
+                    return;
+                }
+            }
+
+            // the exploded archive of the ear or war plugin: target/project
+            ExplodedDirectory exploded = getExplodedDirectory(buildReleaseDir, releaseFile);
+            if (exploded != null) {
+                getLog().debug("Read the nested modules from the exploded directory: " + exploded);
+            }
+
+            // the archive is copied only if it contains a persistence.xml file
+            if (!containsPersistenceXml(releaseFile, exploded, project.getPackaging())) {
+                getLog().info("No files containing the persistence.xml found.");
+                for (String name : releases.keySet()) {
+                    FileSystemUtil.delete(buildDir.resolve(buildReleaseDir.getFileName() + "-" + name + "." + project.getPackaging()));
+                }
+                return;
+            }
+
+            // load the filter files
+            List<String> names = new ArrayList<>(releases.size());
+            List<Map<String, String>> values = new ArrayList<>(releases.size());
+            List<Path> releasePersistenceFiles = new ArrayList<>(releases.size());
+            List<Path> releasePersistenceDirs = null;
+            if (releaseDir) {
+                releasePersistenceDirs = new ArrayList<>(releases.size());
+            }
+            for (Entry<String, String> release : releases.entrySet()) {
+                names.add(release.getKey());
+                values.add(loadProperties(release.getValue()));
+                // the new archive: target/project-test.ear
+                releasePersistenceFiles.add(buildDir.resolve(buildReleaseDir.getFileName() + "-" + release.getKey() + "." + project.getPackaging()));
+                if (releaseDir) {
+                    // the new release directory: target/project-test
+                    releasePersistenceDirs.add(buildDir.resolve(buildReleaseDir.getFileName() + "-" + release.getKey()));
+                }
+            }
+
+            // stream the release file to all new archives and release directories in one pass
+            Set<String> changeFiles = updateArchive(releaseFile, exploded, releasePersistenceFiles, releasePersistenceDirs, project.getPackaging(), values);
+
+            for (int i = 0; i < names.size(); i++) {
+                Path releasePersistenceFile = releasePersistenceFiles.get(i);
+                if (!changeFiles.isEmpty()) {
+                    // attache the artifact to the project
+                    projectHelper.attachArtifact(project, releasePersistenceFile.toFile(), names.get(i));
+
+                    if (incremental) {
+                        Properties fingerprint = fingerprints.get(names.get(i));
+                        fingerprint.setProperty(OUTPUT_SIZE, Long.toString(releasePersistenceFile.toFile().length()));
+                        fingerprint.setProperty(OUTPUT_MODIFIED, Long.toString(releasePersistenceFile.toFile().lastModified()));
+                        FileSystemUtil.saveProperties(fingerprintDir.resolve(releasePersistenceFile.getFileName() + ".properties"), fingerprint, getSyncPolicy());
+                    }
+                } else {
+                    FileSystemUtil.delete(releasePersistenceFile);
+                    if (releaseDir) {
+                        FileSystemUtil.delete(releasePersistenceDirs.get(i));
+                    }
+                }
+            }
+            if (changeFiles.isEmpty()) {
+                getLog().info("No files containing the persistence.xml found.");
+            }
+        } else {
+            getLog().warn("Not supported packing type: " + project.getPackaging());
+        }
+    }
+
+    /**
+     * Creates the fingerprint of the release archive inputs.
+     *
+     * @param artifactHash the hash of the project archive.
+     * @param name the release archive classifier.
+     * @param file the filter property file.
+     * @return the fingerprint of the release archive inputs.
+     * @throws MojoExecutionException if the compression rules are not valid.
+     */
+    private Properties createFingerprint(String artifactHash, String name, String file) throws MojoExecutionException {
+        Properties result = new Properties();
+        result.setProperty("artifact", artifactHash);
+        result.setProperty("properties", FileSystemUtil.hash(Paths.get(file)));
+        result.setProperty("classifier", name);
+        result.setProperty("packaging", project.getPackaging());
+        result.setProperty("releaseDir", Boolean.toString(releaseDir));
+        result.setProperty("version", String.valueOf(getPluginVersion()));
+        result.setProperty("compression", createCompression().getSignature());
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if the release archive was created with the same
+     * inputs and was not changed since.
+     *
+     * @param fingerprintFile the stored fingerprint file.
+     * @param fingerprint the fingerprint of the current inputs.
+     * @param releasePersistenceFile the release archive.
+     * @param releasePersistenceDir the release directory.
+     * @return {@code true} if the release archive is up to date.
+     */
+    private boolean isUpToDate(Path fingerprintFile, Properties fingerprint, Path releasePersistenceFile, Path releasePersistenceDir) {
+        if (!Files.isRegularFile(fingerprintFile) || !Files.isRegularFile(releasePersistenceFile)) {
+            return false;
+        }
+        if (releaseDir && !Files.isDirectory(releasePersistenceDir)) {
+            return false;
+        }
+        Properties stored = FileSystemUtil.loadProperties(fingerprintFile.toString());
+        String size = (String) stored.remove(OUTPUT_SIZE);
+        String modified = (String) stored.remove(OUTPUT_MODIFIED);
+        return fingerprint.equals(stored)
+                && Long.toString(releasePersistenceFile.toFile().length()).equals(size)
+                && Long.toString(releasePersistenceFile.toFile().lastModified()).equals(modified);
+    }
+}
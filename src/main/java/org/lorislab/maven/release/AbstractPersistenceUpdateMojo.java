@@ -0,0 +1,463 @@
+/*
+ * Copyright 2015 Andrej Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactType;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.version.Version;
+import org.lorislab.maven.release.util.FileSystemUtil;
+
+/**
+ * The update task. The base class of the goals with and
+ * without the forked lifecycle.
+ *
+ * @author Andrej Petras
+ */
+public abstract class AbstractPersistenceUpdateMojo extends AbstractPersistenceMojo {
+
+    /**
+     * The MAVEN project.
+     */
+    @Component
+    protected MavenProject project;
+
+    /**
+     * The repository system which resolves the update artifacts.
+     */
+    @Component
+    private RepositorySystem repositorySystem;
+
+    /**
+     * The repository session.
+     */
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+
+    /**
+     * The remote repositories of the project.
+     */
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepositories;
+
+    /**
+     * The filter property file.
+     */
+    @Parameter(required = true)
+    private String properties;
+
+    /**
+     * The create release directory flag.
+     */
+    @Parameter(required = false, defaultValue = "false")
+    private boolean releaseDir;
+
+    /**
+     * The update artifact {@code <groupId>:<artifactId>} or
+     * {@code <groupId>:<artifactId>:<classifier>:<type>}.
+     */
+    @Parameter(required = false)
+    private String updateArtifact;
+
+    /**
+     * The list of the update artifacts {@code <groupId>:<artifactId>} or
+     * {@code <groupId>:<artifactId>:<classifier>:<type>}. All update
+     * artifacts are updated in one execution on the shared worker pool with
+     * the same filter property file.
+     */
+    @Parameter(required = false)
+    private List<String> updateArtifacts;
+
+    /**
+     * Delete the backup files.
+     */
+    @Parameter(required = false, defaultValue = "true")
+    private boolean deleteBackup;
+
+    /**
+     * The output file name. The file name can be used only with one update
+     * artifact.
+     */
+    @Parameter
+    private String filename;
+    
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+
+        reportFork("update-package", project.getArtifact().getFile());
+
+        // the update artifacts are resolved only from the index of the project dependencies
+        Map<String, Dependency> index = createIndex();
+        List<Dependency> dependencies = new ArrayList<>();
+        for (String item : getUpdateArtifacts()) {
+            dependencies.add(findDependency(index, item));
+        }
+        final List<UpdateArtifact> artifacts = resolve(dependencies);
+        if (artifacts.size() > 1 && filename != null && !filename.isEmpty()) {
+            throw new MojoExecutionException("The filename can be used only with one update artifact.");
+        }
+        checkFileNames(artifacts);
+
+        // the compression rules are validated before any artifact is updated
+        createCompression();
+
+        // load the filter file
+        final Map<String, String> values = loadProperties(properties);
+
+        // build directory: target
+        Path tmp = Paths.get(project.getBuild().getDirectory());
+        final Path buildDir = FileSystemUtil.createDirectory(tmp, "persistence-update");
+
+        final ForkJoinPool pool = createPool();
+        try {
+            if (pool == null || artifacts.size() == 1) {
+                for (UpdateArtifact artifact : artifacts) {
+                    updateArtifact(artifact, buildDir, values, pool);
+                }
+            } else {
+                // the artifacts and their nested modules share the worker pool
+                pool.invoke(ForkJoinTask.adapt(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<ForkJoinTask<?>> tasks = new ArrayList<>(artifacts.size());
+                        for (final UpdateArtifact artifact : artifacts) {
+                            tasks.add(ForkJoinTask.adapt(new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        updateArtifact(artifact, buildDir, values, pool);
+                                    } catch (MojoExecutionException ex) {
+                                        throw new RuntimeException("Error updating the artifact " + artifact.file, ex);
+                                    }
+                                }
+                            }));
+                        }
+                        ForkJoinTask.invokeAll(tasks);
+                    }
+                }));
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Gets the list of the configured update artifacts.
+     *
+     * @return the list of the update artifacts.
+     * @throws MojoExecutionException if no update artifact is configured.
+     */
+    private List<String> getUpdateArtifacts() throws MojoExecutionException {
+        Set<String> result = new LinkedHashSet<>();
+        if (updateArtifact != null && !updateArtifact.trim().isEmpty()) {
+            result.add(updateArtifact.trim());
+        }
+        if (updateArtifacts != null) {
+            for (String item : updateArtifacts) {
+                if (item != null && !item.trim().isEmpty()) {
+                    result.add(item.trim());
+                }
+            }
+        }
+        if (result.isEmpty()) {
+            throw new MojoExecutionException("The parameter updateArtifact or updateArtifacts is required.");
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Creates the index of the project dependencies. The dependency is
+     * indexed by the key {@code <groupId>:<artifactId>:<classifier>:<type>}
+     * and by the key {@code <groupId>:<artifactId>} of the first dependency
+     * with the group and artifact id.
+     *
+     * @return the index of the project dependencies.
+     */
+    private Map<String, Dependency> createIndex() {
+        Map<String, Dependency> result = new HashMap<>();
+        List<Dependency> dependencies = project.getDependencies();
+        if (dependencies != null) {
+            for (Dependency dependency : dependencies) {
+                String key = createKey(dependency.getGroupId(), dependency.getArtifactId());
+                if (!result.containsKey(key)) {
+                    result.put(key, dependency);
+                }
+                result.put(createKey(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), dependency.getType()), dependency);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the index key.
+     *
+     * @param parts the key parts.
+     * @return the index key.
+     */
+    private static String createKey(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (sb.length() > 0) {
+                sb.append(':');
+            }
+            sb.append(part == null ? "" : part.trim());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Finds the project dependency of the update artifact.
+     *
+     * @param index the index of the project dependencies.
+     * @param updateArtifact the update artifact
+     * {@code <groupId>:<artifactId>} or
+     * {@code <groupId>:<artifactId>:<classifier>:<type>}.
+     * @return the project dependency.
+     * @throws MojoExecutionException if the artifact is not the dependency
+     * of the project.
+     */
+    private Dependency findDependency(Map<String, Dependency> index, String updateArtifact) throws MojoExecutionException {
+        String[] ii = updateArtifact.split(":", -1);
+        if (ii.length != 2 && ii.length != 4) {
+            throw new MojoExecutionException("The update artifact " + updateArtifact + " is not in the format <groupId>:<artifactId> or <groupId>:<artifactId>:<classifier>:<type>.");
+        }
+        Dependency result = index.get(createKey(ii));
+        if (result == null) {
+            throw new MojoExecutionException("The update artifact " + updateArtifact + " is not a dependency of the project.");
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the files of the update artifacts. Only the update artifacts
+     * are resolved, the other project dependencies are not resolved.
+     *
+     * @param dependencies the list of the project dependencies.
+     * @return the list of the resolved update artifacts.
+     * @throws MojoExecutionException if the resolution fails.
+     */
+    private List<UpdateArtifact> resolve(List<Dependency> dependencies) throws MojoExecutionException {
+        List<UpdateArtifact> result = new ArrayList<>(dependencies.size());
+        List<ArtifactRequest> requests = new ArrayList<>(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            if (dependency.getSystemPath() != null) {
+                result.add(new UpdateArtifact(dependency, dependency.getVersion(), Paths.get(dependency.getSystemPath())));
+                continue;
+            }
+            ArtifactType type = repositorySession.getArtifactTypeRegistry().get(dependency.getType());
+            Artifact artifact;
+            if (type != null) {
+                artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), null, dependency.getVersion(), type);
+            } else {
+                artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), dependency.getType(), dependency.getVersion());
+            }
+            requests.add(new ArtifactRequest(resolveVersion(artifact), remoteRepositories, null));
+            result.add(null);
+        }
+        if (requests.isEmpty()) {
+            return result;
+        }
+
+        List<ArtifactResult> resolved;
+        try {
+            resolved = repositorySystem.resolveArtifacts(repositorySession, requests);
+        } catch (ArtifactResolutionException ex) {
+            throw new MojoExecutionException("Error resolving the update artifacts " + requests, ex);
+        }
+        int r = 0;
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i) == null) {
+                Artifact artifact = resolved.get(r++).getArtifact();
+                getLog().debug("Resolved the update artifact " + artifact + " to the file " + artifact.getFile());
+                result.set(i, new UpdateArtifact(dependencies.get(i), artifact.getVersion(), artifact.getFile().toPath()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the version range of the update artifact to the highest
+     * matching version. The artifact with a plain version is not changed.
+     *
+     * @param artifact the update artifact.
+     * @return the update artifact with the resolved version.
+     * @throws MojoExecutionException if the resolution fails.
+     */
+    private Artifact resolveVersion(Artifact artifact) throws MojoExecutionException {
+        String version = artifact.getVersion();
+        if (!version.startsWith("[") && !version.startsWith("(")) {
+            return artifact;
+        }
+        VersionRangeResult range;
+        try {
+            range = repositorySystem.resolveVersionRange(repositorySession, new VersionRangeRequest(artifact, remoteRepositories, null));
+        } catch (VersionRangeResolutionException ex) {
+            throw new MojoExecutionException("Error resolving the version range of the update artifact " + artifact, ex);
+        }
+        Version highest = range.getHighestVersion();
+        if (highest == null) {
+            throw new MojoExecutionException("No version of the update artifact " + artifact + " matches the version range.");
+        }
+        getLog().debug("Resolved the version range of the update artifact " + artifact + " to the version " + highest);
+        return artifact.setVersion(highest.toString());
+    }
+
+    /**
+     * Gets the output file name of the update artifact.
+     *
+     * @param artifact the resolved update artifact.
+     * @return the output file name.
+     */
+    private String getFileName(UpdateArtifact artifact) {
+        // the configured file name is not changed, the execution is reentrant
+        String name = filename;
+        if (name == null || name.isEmpty()) {
+            name = artifact.dependency.getArtifactId() + "-" + artifact.version + "." + artifact.dependency.getType();
+        }
+        return name;
+    }
+
+    /**
+     * Checks that the output files of the update artifacts do not overwrite
+     * each other. The output file name does not contain the group and the
+     * classifier of the artifact and the backup file name does not contain
+     * the group of the artifact.
+     *
+     * @param artifacts the list of the resolved update artifacts.
+     * @throws MojoExecutionException if two update artifacts have the same
+     * output file name.
+     */
+    private void checkFileNames(List<UpdateArtifact> artifacts) throws MojoExecutionException {
+        Map<String, UpdateArtifact> names = new HashMap<>();
+        for (UpdateArtifact artifact : artifacts) {
+            for (String name : Arrays.asList(getFileName(artifact), artifact.file.getFileName() + "-backup")) {
+                UpdateArtifact tmp = names.put(name, artifact);
+                if (tmp != null) {
+                    throw new MojoExecutionException("The update artifacts " + tmp.dependency.getManagementKey() + " and "
+                            + artifact.dependency.getManagementKey() + " have the same output file name " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the dependency artifact.
+     *
+     * @param artifact the resolved update artifact.
+     * @param buildDir the output directory.
+     * @param values the map of properties values.
+     * @param pool the worker pool or {@code null} for the sequential update.
+     * @throws MojoExecutionException if the compression rules are not valid.
+     */
+    private void updateArtifact(UpdateArtifact artifact, Path buildDir, Map<String, String> values, ForkJoinPool pool) throws MojoExecutionException {
+
+        Path ap = artifact.file;
+        String type = artifact.dependency.getType();
+        Path releaseFile = buildDir.resolve(getFileName(artifact));
+
+        if (isSupported(type)) {
+
+            // the archive is updated only if it contains a persistence.xml file
+            if (!containsPersistenceXml(ap, type)) {
+                getLog().info("No files containing the persistence.xml found in the file: " + ap);
+                FileSystemUtil.copyFile(ap, releaseFile, getSyncPolicy());
+                return;
+            }
+
+            if (!deleteBackup) {
+                final Path backupFile = buildDir.resolve(ap.getFileName() + "-backup");
+                FileSystemUtil.copyFile(ap, backupFile, getSyncPolicy());
+            }
+
+            // stream the release file to the new archive and the release directory in one pass
+            Path releasePersistenceDir = null;
+            if (releaseDir) {
+                releasePersistenceDir = buildDir.resolve(ap.getFileName() + "-update");
+            }
+            updateArchive(ap, null, Collections.singletonList(releaseFile), Collections.singletonList(releasePersistenceDir),
+                    type, Collections.singletonList(values), pool);
+        } else {
+            getLog().warn("Not supported packing type: " + type);
+            FileSystemUtil.copyFile(ap, releaseFile, getSyncPolicy());
+        }
+    }
+
+    /**
+     * The resolved update artifact.
+     */
+    private static final class UpdateArtifact {
+
+        /**
+         * The project dependency.
+         */
+        private final Dependency dependency;
+
+        /**
+         * The resolved version.
+         */
+        private final String version;
+
+        /**
+         * The artifact file.
+         */
+        private final Path file;
+
+        /**
+         * The default constructor.
+         *
+         * @param dependency the project dependency.
+         * @param version the resolved version.
+         * @param file the artifact file.
+         */
+        UpdateArtifact(Dependency dependency, String version, Path file) {
+            this.dependency = dependency;
+            this.version = version;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Andrej Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The pre-packaging release task. The persistence.xml of the project output
+ * directory is updated for each release classifier to the separate release
+ * directory before the project archive is created. The release directory
+ * has the layout of the archive ({@code META-INF/persistence.xml} or
+ * {@code WEB-INF/classes/META-INF/persistence.xml}) and can be packaged by
+ * the jar or war plugin.
+ *
+ * @author Andrej Petras
+ */
+@Mojo(name = "release-classes", defaultPhase = LifecyclePhase.PREPARE_PACKAGE, inheritByDefault = false,
+        threadSafe = true)
+public class PersistenceReleaseClassesMojo extends AbstractPersistenceMojo {
+
+    /**
+     * The persistence.xml location in the project output directory.
+     */
+    private static final String PERSISTENCE_XML = "META-INF/persistence.xml";
+
+    /**
+     * The MAVEN project.
+     */
+    @Component
+    protected MavenProject project;
+
+    /**
+     * The release classifier.
+     */
+    @Parameter(required = false)
+    private String classifier;
+
+    /**
+     * The map of the release classifiers and the filter property files.
+     */
+    @Parameter(required = false)
+    private Map<String, String> classifiers;
+
+    /**
+     * The filter property file of the release classifier.
+     */
+    @Parameter(required = false)
+    private String properties;
+
+    /**
+     * The release directory. The persistence.xml of each classifier is
+     * written to the sub-directory with the classifier name.
+     */
+    @Parameter(required = false, defaultValue = "${project.build.directory}/persistence-classes")
+    private String outputDirectory;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+
+        // the filter files by the classifier
+        Map<String, String> releases = getReleases(classifier, properties, classifiers);
+
+        String persistenceXml = getPersistenceXml(project.getPackaging());
+        if (persistenceXml == null) {
+            getLog().warn("Not supported packing type: " + project.getPackaging());
+            return;
+        }
+
+        // persistence file: target/classes/META-INF/persistence.xml
+        Path source = Paths.get(project.getBuild().getOutputDirectory()).resolve(PERSISTENCE_XML);
+        if (!Files.isRegularFile(source)) {
+            getLog().info("No files containing the persistence.xml found.");
+            return;
+        }
+
+        // release directory: target/persistence-classes/test
+        Path releaseDir = Paths.get(outputDirectory);
+        for (Entry<String, String> release : releases.entrySet()) {
+            Path target = releaseDir.resolve(release.getKey()).resolve(persistenceXml);
+            getLog().info("Update of the persistence.xml for the classifier " + release.getKey() + " to the file: " + target);
+            updatePersistenceXml(source, target, loadProperties(release.getValue()));
+        }
+    }
+}
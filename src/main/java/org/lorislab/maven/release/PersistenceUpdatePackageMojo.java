@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 Andrej Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * The update task without the forked lifecycle. The goal is bound to the
+ * package phase.
+ *
+ * @author Andrej Petras
+ */
+@Mojo(name = "update-package", defaultPhase = LifecyclePhase.PACKAGE, inheritByDefault = false,
+        threadSafe = true)
+public class PersistenceUpdatePackageMojo extends AbstractPersistenceUpdateMojo {
+
+    // the packaged archive is updated without the forked lifecycle
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.model;
+
+/**
+ * The compression rule of the rewritten archive entries. The rule matches the
+ * entry by the file extensions or by the regular expression of the entry
+ * path. The level is {@code stored}, {@code default} or the deflate level
+ * {@code 0-9}.
+ *
+ * @author Andrej_Petras
+ */
+public class CompressionRule {
+
+    /**
+     * The comma separated list of file extensions.
+     */
+    private String extensions;
+
+    /**
+     * The regular expression of the entry path.
+     */
+    private String pattern;
+
+    /**
+     * The compression level.
+     */
+    private String level;
+
+    /**
+     * The default constructor.
+     */
+    public CompressionRule() {
+        // empty constructor
+    }
+
+    /**
+     * The default constructor.
+     *
+     * @param extensions the comma separated list of file extensions.
+     * @param pattern the regular expression of the entry path.
+     * @param level the compression level.
+     */
+    public CompressionRule(String extensions, String pattern, String level) {
+        this.extensions = extensions;
+        this.pattern = pattern;
+        this.level = level;
+    }
+
+    /**
+     * Gets the comma separated list of file extensions.
+     *
+     * @return the comma separated list of file extensions.
+     */
+    public String getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Sets the comma separated list of file extensions.
+     *
+     * @param extensions the comma separated list of file extensions.
+     */
+    public void setExtensions(String extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * Gets the regular expression of the entry path.
+     *
+     * @return the regular expression of the entry path.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Sets the regular expression of the entry path.
+     *
+     * @param pattern the regular expression of the entry path.
+     */
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Gets the compression level.
+     *
+     * @return the compression level.
+     */
+    public String getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the compression level.
+     *
+     * @param level the compression level.
+     */
+    public void setLevel(String level) {
+        this.level = level;
+    }
+
+}
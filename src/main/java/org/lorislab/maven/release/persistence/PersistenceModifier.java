@@ -15,30 +15,663 @@
  */
 package org.lorislab.maven.release.persistence;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.DTD;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
 import org.lorislab.maven.release.util.XMLUtil;
 
 /**
+ * The persistence modifier. The modifier streams the XML events of the
+ * persistence.xml and rewrites the {@code <property>} elements of the
+ * persistence units on the fly.
  *
  * @author Andrej_Petras
  */
-public abstract class PersistenceModifier<T> {
-    
-    private final Class<T> clazz;
+public abstract class PersistenceModifier {
 
-    public PersistenceModifier(Class<T> clazz) {
-        this.clazz = clazz;
+    /**
+     * The persistence element.
+     */
+    private static final String PERSISTENCE = "persistence";
+
+    /**
+     * The persistence unit element.
+     */
+    private static final String PERSISTENCE_UNIT = "persistence-unit";
+
+    /**
+     * The properties element.
+     */
+    private static final String PROPERTIES = "properties";
+
+    /**
+     * The property element.
+     */
+    private static final String PROPERTY = "property";
+
+    /**
+     * The name attribute.
+     */
+    private static final QName NAME = new QName("name");
+
+    /**
+     * The value attribute.
+     */
+    private static final QName VALUE = new QName("value");
+
+    /**
+     * The version attribute.
+     */
+    private static final QName VERSION = new QName("version");
+
+    /**
+     * The event factory. The factory is shared by all threads, the location
+     * of the factory is never set so the created events do not depend on the
+     * state of the factory.
+     */
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    /**
+     * The default encoding.
+     */
+    private static final String DEFAULT_ENCODING = "UTF-8";
+
+    /**
+     * The default indentation.
+     */
+    private static final String INDENT = "    ";
+
+    /**
+     * The persistence version.
+     */
+    private final String version;
+
+    /**
+     * The persistence schema namespace.
+     */
+    private final String namespace;
+
+    /**
+     * The default constructor.
+     *
+     * @param version the persistence version.
+     * @param namespace the persistence schema namespace.
+     */
+    protected PersistenceModifier(String version, String namespace) {
+        this.version = version;
+        this.namespace = namespace;
+    }
+
+    /**
+     * Gets the persistence version.
+     *
+     * @return the persistence version.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the persistence schema namespace.
+     *
+     * @return the persistence schema namespace.
+     */
+    public String getNamespace() {
+        return namespace;
     }
-        
+
+    /**
+     * Modifies the persistence.xml file.
+     *
+     * @param path the persistence.xml file.
+     * @param values the map of properties values.
+     */
     public void modifier(Path path, Map<String, String> values) {
-        T persistence = XMLUtil.loadObject(path, clazz);
-        
-        Map<String, String> tmp = new HashMap<>(values);
-        modifier(persistence, tmp);
-        XMLUtil.saveObject(path, persistence);        
-    }
-    
-    protected abstract void modifier(T persistence, Map<String, String> values);
+        try {
+            byte[] data = Files.readAllBytes(path);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length);
+            modifier(new ByteArrayInputStream(data), output, values);
+            Files.write(path, output.toByteArray());
+        } catch (Exception ex) {
+            throw new RuntimeException("Error modifying the persistence.xml " + path.toString(), ex);
+        }
+    }
+
+    /**
+     * Modifies the persistence.xml stream. The properties with the empty
+     * value are removed, the existing properties are updated and the missing
+     * properties are added to each persistence unit.
+     *
+     * @param input the persistence.xml input stream.
+     * @param output the persistence.xml output stream.
+     * @param values the map of properties values.
+     */
+    public void modifier(InputStream input, OutputStream output, Map<String, String> values) {
+        modifier(input, output, values, this, null);
+    }
+
+    /**
+     * Modifies the persistence.xml stream with the modifier of the persistence
+     * version. The version is read from the root element by the same event
+     * reader which rewrites the stream, the persistence.xml is parsed only
+     * once.
+     *
+     * @param input the persistence.xml input stream.
+     * @param output the persistence.xml output stream.
+     * @param values the map of properties values.
+     * @param modifiers the map of persistence modifiers by the version.
+     * @return the persistence version.
+     */
+    public static String modifier(InputStream input, OutputStream output, Map<String, String> values, Map<String, PersistenceModifier> modifiers) {
+        return modifier(input, output, values, null, modifiers);
+    }
+
+    /**
+     * Modifies the persistence.xml stream.
+     *
+     * @param input the persistence.xml input stream.
+     * @param output the persistence.xml output stream.
+     * @param values the map of properties values.
+     * @param modifier the persistence modifier or {@code null} to select the
+     * modifier by the version of the root element.
+     * @param modifiers the map of persistence modifiers by the version.
+     * @return the persistence version.
+     */
+    private static String modifier(InputStream input, OutputStream output, Map<String, String> values, PersistenceModifier modifier, Map<String, PersistenceModifier> modifiers) {
+        try {
+            XMLEventReader reader = XMLUtil.createEventReader(input);
+
+            String encoding = DEFAULT_ENCODING;
+            XMLEvent first = reader.peek();
+            if (first != null && first.isStartDocument() && ((StartDocument) first).encodingSet()) {
+                encoding = ((StartDocument) first).getCharacterEncodingScheme();
+            }
+
+            XMLStreamWriter writer = XMLUtil.createStreamWriter(output, encoding);
+            Rewriter rewriter = new Rewriter(reader, writer, encoding, values, modifier, modifiers);
+            rewriter.execute();
+            writer.flush();
+            writer.close();
+            reader.close();
+            return rewriter.version;
+        } catch (XMLStreamException ex) {
+            throw new RuntimeException("Error modifying the persistence.xml", ex);
+        }
+    }
+
+    /**
+     * The persistence.xml event rewriter. The events are written to the
+     * stream writer, which writes the element without content as the empty
+     * element.
+     */
+    private static class Rewriter {
+
+        /**
+         * The event factory.
+         */
+        private final XMLEventFactory factory = EVENT_FACTORY;
+
+        /**
+         * The event reader.
+         */
+        private final XMLEventReader reader;
+
+        /**
+         * The stream writer.
+         */
+        private final XMLStreamWriter writer;
+
+        /**
+         * The output encoding.
+         */
+        private final String encoding;
+
+        /**
+         * The map of properties values.
+         */
+        private final Map<String, String> values;
+
+        /**
+         * The map of persistence modifiers by the version.
+         */
+        private final Map<String, PersistenceModifier> modifiers;
+
+        /**
+         * The persistence modifier.
+         */
+        private PersistenceModifier modifier;
+
+        /**
+         * The persistence version.
+         */
+        private String version;
+
+        /**
+         * The properties values of the current persistence unit.
+         */
+        private Map<String, String> unitValues;
+
+        /**
+         * The properties element of the current persistence unit.
+         */
+        private StartElement properties;
+
+        /**
+         * The current persistence unit contains the properties element.
+         */
+        private boolean propertiesFound;
+
+        /**
+         * The white space before the current element.
+         */
+        private String pending;
+
+        /**
+         * The white space before the property element.
+         */
+        private String propertyIndent;
+
+        /**
+         * The white space before the first child of the persistence unit.
+         */
+        private String childIndent;
+
+        /**
+         * The root element was found.
+         */
+        private boolean root;
+
+        /**
+         * The depth of the written elements.
+         */
+        private int depth;
+
+        /**
+         * The default constructor.
+         *
+         * @param reader the event reader.
+         * @param writer the stream writer.
+         * @param encoding the output encoding.
+         * @param values the map of properties values.
+         * @param modifier the persistence modifier or {@code null} to select
+         * the modifier by the version of the root element.
+         * @param modifiers the map of persistence modifiers by the version.
+         */
+        Rewriter(XMLEventReader reader, XMLStreamWriter writer, String encoding, Map<String, String> values, PersistenceModifier modifier, Map<String, PersistenceModifier> modifiers) {
+            this.reader = reader;
+            this.writer = writer;
+            this.encoding = encoding;
+            this.values = values;
+            this.modifier = modifier;
+            this.modifiers = modifiers;
+            if (modifier != null) {
+                this.version = modifier.getVersion();
+            }
+        }
+
+        /**
+         * Rewrites the events.
+         *
+         * @throws XMLStreamException if the method fails.
+         */
+        void execute() throws XMLStreamException {
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartDocument()) {
+                    writer.writeStartDocument(encoding, ((StartDocument) event).getVersion());
+                    writer.writeCharacters("\n");
+                } else if (event.isCharacters() && event.asCharacters().isWhiteSpace()) {
+                    // keep the white space until the next event is known
+                    flush();
+                    pending = event.asCharacters().getData();
+                } else if (event.isStartElement()) {
+                    if (!root) {
+                        root = true;
+                        rootElement(event.asStartElement());
+                    }
+                    startElement(event.asStartElement());
+                } else if (event.isEndElement()) {
+                    endElement(event);
+                } else {
+                    flush();
+                    write(event);
+                    if ((!root || depth == 0) && (event.isProcessingInstruction() || event.getEventType() == XMLEvent.COMMENT)) {
+                        // the white space of the prolog and the epilog is not reported
+                        writer.writeCharacters("\n");
+                    }
+                }
+            }
+            flush();
+        }
+
+        /**
+         * Processing the root element. The persistence modifier is selected
+         * by the version attribute if it was not set.
+         *
+         * @param start the root element.
+         * @throws XMLStreamException if the persistence version is not
+         * supported.
+         */
+        private void rootElement(StartElement start) throws XMLStreamException {
+            if (modifier != null) {
+                return;
+            }
+            if (PERSISTENCE.equals(start.getName().getLocalPart())) {
+                Attribute attribute = start.getAttributeByName(VERSION);
+                if (attribute != null) {
+                    version = attribute.getValue();
+                }
+            }
+            modifier = modifiers.get(version);
+            if (modifier == null) {
+                throw new XMLStreamException("Missing the persistence.xml modifier for the version: " + version, start.getLocation());
+            }
+        }
+
+        /**
+         * Processing the start element.
+         *
+         * @param start the start element.
+         * @throws XMLStreamException if the method fails.
+         */
+        private void startElement(StartElement start) throws XMLStreamException {
+            StartElement element = start;
+            if (unitValues != null && childIndent == null) {
+                childIndent = pending;
+            }
+            if (isElement(start.getName(), PERSISTENCE_UNIT)) {
+                unitValues = new TreeMap<>(values);
+                propertiesFound = false;
+                childIndent = null;
+            } else if (unitValues != null && isElement(start.getName(), PROPERTIES)) {
+                properties = start;
+                propertiesFound = true;
+            } else if (properties != null && isElement(start.getName(), PROPERTY)) {
+                if (propertyIndent == null) {
+                    propertyIndent = pending;
+                }
+                Attribute name = start.getAttributeByName(NAME);
+                if (name != null && unitValues.containsKey(name.getValue())) {
+                    String value = unitValues.remove(name.getValue());
+                    if (value == null || value.isEmpty()) {
+                        // remove the property with the white space before
+                        pending = null;
+                        skipElement();
+                        return;
+                    }
+                    element = setValue(start, value);
+                }
+            }
+            flush();
+            // the element without content is written as the empty element
+            boolean empty = reader.peek() != null && reader.peek().isEndElement()
+                    && !isElement(start.getName(), PROPERTIES) && !isElement(start.getName(), PERSISTENCE_UNIT);
+            if (empty) {
+                reader.nextEvent();
+            }
+            writeStartElement(element, empty);
+        }
+
+        /**
+         * Processing the end element.
+         *
+         * @param event the end element.
+         * @throws XMLStreamException if the method fails.
+         */
+        private void endElement(XMLEvent event) throws XMLStreamException {
+            QName name = event.asEndElement().getName();
+            if (properties != null && isElement(name, PROPERTIES)) {
+                // add the new properties at the end of the properties element
+                String indent = propertyIndent != null ? propertyIndent : indent(pending, INDENT);
+                writeProperties(properties.getName(), indent);
+                properties = null;
+            } else if (unitValues != null && isElement(name, PERSISTENCE_UNIT)) {
+                if (!propertiesFound && hasValues()) {
+                    // add the properties element to the persistence unit
+                    QName element = new QName(name.getNamespaceURI(), PROPERTIES, name.getPrefix());
+                    String step = INDENT;
+                    if (pending != null && childIndent != null && childIndent.startsWith(pending)) {
+                        step = childIndent.substring(pending.length());
+                    }
+                    String indent = indent(pending, step);
+                    writer.writeCharacters(indent);
+                    writeStartElement(factory.createStartElement(element, null, null), false);
+                    writeProperties(element, indent(indent, step));
+                    writer.writeCharacters(indent);
+                    writeEndElement();
+                }
+                unitValues = null;
+            }
+            flush();
+            writeEndElement();
+        }
+
+        /**
+         * Writes the remaining properties of the persistence unit.
+         *
+         * @param parent the properties element name.
+         * @param indent the white space before the property element.
+         * @throws XMLStreamException if the method fails.
+         */
+        private void writeProperties(QName parent, String indent) throws XMLStreamException {
+            QName element = new QName(parent.getNamespaceURI(), PROPERTY, parent.getPrefix());
+            for (Entry<String, String> entry : unitValues.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    List<Attribute> attributes = new ArrayList<>(2);
+                    attributes.add(factory.createAttribute(NAME, entry.getKey()));
+                    attributes.add(factory.createAttribute(VALUE, entry.getValue()));
+                    writer.writeCharacters(indent);
+                    writeStartElement(factory.createStartElement(element, attributes.iterator(), null), true);
+                }
+            }
+            unitValues.clear();
+        }
+
+        /**
+         * Creates the property element with the new value.
+         *
+         * @param start the property element.
+         * @param value the new value.
+         * @return the corresponding property element.
+         */
+        private StartElement setValue(StartElement start, String value) {
+            List<Attribute> attributes = new ArrayList<>();
+            Iterator<?> iter = start.getAttributes();
+            while (iter.hasNext()) {
+                Attribute attribute = (Attribute) iter.next();
+                if (!VALUE.equals(attribute.getName())) {
+                    attributes.add(attribute);
+                }
+            }
+            attributes.add(factory.createAttribute(VALUE, value));
+            return factory.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces());
+        }
+
+        /**
+         * Skips the current element with all children.
+         *
+         * @throws XMLStreamException if the method fails.
+         */
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+            }
+        }
+
+        /**
+         * Returns {@code true} if the persistence unit has properties to add.
+         *
+         * @return {@code true} if the persistence unit has properties to add.
+         */
+        private boolean hasValues() {
+            for (String value : unitValues.values()) {
+                if (value != null && !value.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Writes the pending white space.
+         *
+         * @throws XMLStreamException if the method fails.
+         */
+        private void flush() throws XMLStreamException {
+            if (pending != null) {
+                writer.writeCharacters(pending);
+                pending = null;
+            }
+        }
+
+        /**
+         * Writes the start element. The namespaces are written before the
+         * attributes.
+         *
+         * @param start the start element.
+         * @param empty {@code true} to write the empty element.
+         * @throws XMLStreamException if the method fails.
+         */
+        private void writeStartElement(StartElement start, boolean empty) throws XMLStreamException {
+            QName name = start.getName();
+            if (empty) {
+                writer.writeEmptyElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+            } else {
+                writer.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+            }
+            Iterator<?> namespaces = start.getNamespaces();
+            while (namespaces.hasNext()) {
+                Namespace namespace = (Namespace) namespaces.next();
+                if (namespace.isDefaultNamespaceDeclaration()) {
+                    writer.writeDefaultNamespace(namespace.getNamespaceURI());
+                } else {
+                    writer.writeNamespace(namespace.getPrefix(), namespace.getNamespaceURI());
+                }
+            }
+            Iterator<?> attributes = start.getAttributes();
+            while (attributes.hasNext()) {
+                Attribute attribute = (Attribute) attributes.next();
+                QName attributeName = attribute.getName();
+                if (attributeName.getNamespaceURI().isEmpty()) {
+                    writer.writeAttribute(attributeName.getLocalPart(), attribute.getValue());
+                } else {
+                    writer.writeAttribute(attributeName.getPrefix(), attributeName.getNamespaceURI(), attributeName.getLocalPart(), attribute.getValue());
+                }
+            }
+            if (!empty) {
+                depth++;
+            } else if (depth == 0) {
+                // the white space after the root element is not reported
+                writer.writeCharacters("\n");
+            }
+        }
+
+        /**
+         * Writes the end element.
+         *
+         * @throws XMLStreamException if the method fails.
+         */
+        private void writeEndElement() throws XMLStreamException {
+            writer.writeEndElement();
+            depth--;
+            if (depth == 0) {
+                // the white space after the root element is not reported
+                writer.writeCharacters("\n");
+            }
+        }
+
+        /**
+         * Writes the event which is not an element.
+         *
+         * @param event the event.
+         * @throws XMLStreamException if the event is not supported.
+         */
+        private void write(XMLEvent event) throws XMLStreamException {
+            switch (event.getEventType()) {
+                case XMLEvent.CHARACTERS:
+                case XMLEvent.SPACE:
+                    writer.writeCharacters(event.asCharacters().getData());
+                    break;
+                case XMLEvent.CDATA:
+                    writer.writeCData(event.asCharacters().getData());
+                    break;
+                case XMLEvent.COMMENT:
+                    writer.writeComment(((Comment) event).getText());
+                    break;
+                case XMLEvent.PROCESSING_INSTRUCTION:
+                    ProcessingInstruction instruction = (ProcessingInstruction) event;
+                    if (instruction.getData() == null || instruction.getData().isEmpty()) {
+                        writer.writeProcessingInstruction(instruction.getTarget());
+                    } else {
+                        writer.writeProcessingInstruction(instruction.getTarget(), instruction.getData());
+                    }
+                    break;
+                case XMLEvent.DTD:
+                    writer.writeDTD(((DTD) event).getDocumentTypeDeclaration());
+                    break;
+                case XMLEvent.ENTITY_REFERENCE:
+                    writer.writeEntityRef(((EntityReference) event).getName());
+                    break;
+                case XMLEvent.END_DOCUMENT:
+                    writer.writeEndDocument();
+                    break;
+                default:
+                    throw new XMLStreamException("Not supported XML event: " + event.getEventType(), event.getLocation());
+            }
+        }
+
+        /**
+         * Returns {@code true} if the name is the persistence element.
+         *
+         * @param name the element name.
+         * @param element the persistence element name.
+         * @return {@code true} if the name is the persistence element.
+         */
+        private boolean isElement(QName name, String element) {
+            return element.equals(name.getLocalPart()) && modifier.getNamespace().equals(name.getNamespaceURI());
+        }
+    }
+
+    /**
+     * Creates the indentation.
+     *
+     * @param base the white space before the parent element end.
+     * @param indent the additional indentation.
+     * @return the corresponding indentation.
+     */
+    private static String indent(String base, String indent) {
+        if (base == null) {
+            return "";
+        }
+        return base + indent;
+    }
 }
@@ -15,74 +15,17 @@
  */
 package org.lorislab.maven.release.persistence;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import org.lorislab.maven.release.persistence.jpa20.Persistence;
-
 /**
  * The persistence modifier for version 2.0
  * 
  * @author Andrej_Petras
  */
-public class PersistenceModifier20 extends PersistenceModifier<Persistence> {
+public class PersistenceModifier20 extends PersistenceModifier {
 
     /**
      * The default constructor.
      */
     public PersistenceModifier20() {
-        super(Persistence.class);
-    }
-    
-    /**
-     * {@inheritDoc }
-     */
-    @Override
-    public void modifier(Persistence persistence, Map<String, String> values) {
-        
-        List<Persistence.PersistenceUnit> units = persistence.getPersistenceUnit();
-        if (units != null) {
-            for (Persistence.PersistenceUnit unit : units) {
-                List<Persistence.PersistenceUnit.Properties.Property> properties = unit.getProperties().getProperty();
-
-                if (properties != null) {
-                    
-                    Set<Persistence.PersistenceUnit.Properties.Property> delete = new HashSet<>();                    
-                    for (Persistence.PersistenceUnit.Properties.Property pro : properties) {
-                        
-                        String key = pro.getName();
-                        if (values.containsKey(key)) {
-                            
-                            String value = values.get(key);
-                            if (value == null || value.isEmpty()) {
-                                delete.add(pro);
-                            } else {
-                                pro.setValue(value);
-                            }
-                            
-                            values.remove(key);
-                        }
-                    }
-                                                            
-                    // add new properties
-                    if (!values.isEmpty()) {
-                        for (Entry<String, String> entry : values.entrySet()) {
-                            Persistence.PersistenceUnit.Properties.Property prop = new Persistence.PersistenceUnit.Properties.Property();
-                            prop.setName(entry.getKey());
-                            prop.setValue(entry.getValue());
-                            properties.add(prop);
-                        }
-                    }
-                    
-                    // delete properties
-                    if (!delete.isEmpty()) {
-                        properties.removeAll(delete);
-                    }                    
-                }
-            }
-        }
+        super("2.0", "http://java.sun.com/xml/ns/persistence");
     }
-
 }
@@ -1,45 +0,0 @@
-//
-// This file was generated by the JavaTM Architecture for XML Binding(JAXB) Reference Implementation, v2.2.10-b140310.1920 
-// See <a href="http://java.sun.com/xml/jaxb">http://java.sun.com/xml/jaxb</a> 
-// Any modifications to this file will be lost upon recompilation of the source schema. 
-// Generated on: 2015.11.14 at 10:23:44 AM CET 
-//
-
-
-package org.lorislab.maven.release.persistence.jpa20;
-
-import javax.xml.bind.annotation.XmlEnum;
-import javax.xml.bind.annotation.XmlType;
-
-
-/**
- * <p>Java class for persistence-unit-transaction-type.
- * 
- * <p>The following schema fragment specifies the expected content contained within this class.
- * <p>
- * <pre>
- * &lt;simpleType name="persistence-unit-transaction-type">
- *   &lt;restriction base="{http://www.w3.org/2001/XMLSchema}token">
- *     &lt;enumeration value="JTA"/>
- *     &lt;enumeration value="RESOURCE_LOCAL"/>
- *   &lt;/restriction>
- * &lt;/simpleType>
- * </pre>
- * 
- */
-@XmlType(name = "persistence-unit-transaction-type")
-@XmlEnum
-public enum PersistenceUnitTransactionType {
-
-    JTA,
-    RESOURCE_LOCAL;
-
-    public String value() {
-        return name();
-    }
-
-    public static PersistenceUnitTransactionType fromValue(String v) {
-        return valueOf(v);
-    }
-
-}
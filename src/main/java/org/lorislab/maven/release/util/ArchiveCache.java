@@ -0,0 +1,278 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The content-addressed cache of the updated nested archives. The key of the
+ * cache is the hash of the source archive and of the applied properties, the
+ * cache stores the updated archive and the list of the changed files. The
+ * cache directory can be shared by several builds, the entries are published
+ * with the atomic move and the least recently used entries are evicted when
+ * the cache exceeds the maximum size.
+ *
+ * @author Andrej_Petras
+ */
+public final class ArchiveCache {
+
+    /**
+     * The suffix of the archive file.
+     */
+    private static final String ARCHIVE = ".zip";
+
+    /**
+     * The suffix of the changed files list.
+     */
+    private static final String CHANGES = ".changes";
+
+    /**
+     * The cache directory.
+     */
+    private final Path directory;
+
+    /**
+     * The maximum size of the cache in bytes.
+     */
+    private final long maxSize;
+
+    /**
+     * The number of cache hits.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of cache misses.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The running eviction flag.
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * The default constructor.
+     *
+     * @param directory the cache directory.
+     * @param maxSize the maximum size of the cache in bytes.
+     */
+    public ArchiveCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates the cache key from the key parts.
+     *
+     * @param parts the key parts.
+     * @return the cache key.
+     */
+    public static String createKey(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            sb.append(part).append('\n');
+        }
+        byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+        return FileSystemUtil.hash(data, data.length);
+    }
+
+    /**
+     * Gets the cached archive. The access time of the entry is updated for
+     * the eviction.
+     *
+     * @param key the cache key.
+     * @return the cached archive or {@code null} if the cache does not
+     * contain the key.
+     */
+    public Entry get(String key) {
+        Path archive = directory.resolve(key + ARCHIVE);
+        try {
+            List<String> changes = Files.readAllLines(directory.resolve(key + CHANGES), StandardCharsets.UTF_8);
+            byte[] data = Files.readAllBytes(archive);
+            Files.setLastModifiedTime(archive, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.increment();
+            return new Entry(data, changes);
+        } catch (NoSuchFileException ex) {
+            // the entry does not exist or was evicted
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading the cached archive " + archive.toString(), ex);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Puts the archive to the cache and evicts the least recently used
+     * entries if the cache exceeds the maximum size.
+     *
+     * @param key the cache key.
+     * @param data the archive data.
+     * @param changes the list of the changed files in the archive.
+     */
+    public void put(String key, byte[] data, Collection<String> changes) {
+        StringBuilder sb = new StringBuilder();
+        for (String change : changes) {
+            sb.append(change).append('\n');
+        }
+        // the archive file is published last, the reader needs both files
+        FileSystemUtil.writeFile(directory.resolve(key + CHANGES), sb.toString().getBytes(StandardCharsets.UTF_8), SyncPolicy.NONE);
+        FileSystemUtil.writeFile(directory.resolve(key + ARCHIVE), data, SyncPolicy.NONE);
+        evict();
+    }
+
+    /**
+     * Gets the number of cache hits.
+     *
+     * @return the number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of cache misses.
+     *
+     * @return the number of cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache does not exceed
+     * the maximum size. The eviction is skipped if it is already running in
+     * the other thread, the concurrent evictions of the other builds only
+     * delete the same files.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            evictEntries();
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries.
+     */
+    private void evictEntries() {
+        final List<Path> archives = new ArrayList<>();
+        final List<BasicFileAttributes> attributes = new ArrayList<>();
+        long size = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ARCHIVE)) {
+            for (Path archive : stream) {
+                try {
+                    BasicFileAttributes attr = Files.readAttributes(archive, BasicFileAttributes.class);
+                    archives.add(archive);
+                    attributes.add(attr);
+                    size += attr.size();
+                } catch (NoSuchFileException ex) {
+                    // evicted by the other build
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading the cache directory " + directory.toString(), ex);
+        }
+        if (size <= maxSize) {
+            return;
+        }
+
+        List<Integer> order = new ArrayList<>(archives.size());
+        for (int i = 0; i < archives.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return attributes.get(o1).lastModifiedTime().compareTo(attributes.get(o2).lastModifiedTime());
+            }
+        });
+        for (int i = 0; i < order.size() && size > maxSize; i++) {
+            Path archive = archives.get(order.get(i));
+            String name = archive.getFileName().toString();
+            try {
+                Files.deleteIfExists(archive);
+                Files.deleteIfExists(directory.resolve(name.substring(0, name.length() - ARCHIVE.length()) + CHANGES));
+            } catch (IOException ex) {
+                throw new RuntimeException("Error evicting the cached archive " + archive.toString(), ex);
+            }
+            size -= attributes.get(order.get(i)).size();
+        }
+    }
+
+    /**
+     * The cached archive.
+     */
+    public static final class Entry {
+
+        /**
+         * The archive data.
+         */
+        private final byte[] data;
+
+        /**
+         * The list of the changed files in the archive.
+         */
+        private final List<String> changes;
+
+        /**
+         * The default constructor.
+         *
+         * @param data the archive data.
+         * @param changes the list of the changed files in the archive.
+         */
+        Entry(byte[] data, List<String> changes) {
+            this.data = data;
+            this.changes = changes;
+        }
+
+        /**
+         * Gets the archive data.
+         *
+         * @return the archive data.
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Gets the list of the changed files in the archive.
+         *
+         * @return the list of the changed files in the archive.
+         */
+        public List<String> getChanges() {
+            return changes;
+        }
+    }
+}
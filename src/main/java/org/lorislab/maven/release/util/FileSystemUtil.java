@@ -15,27 +15,39 @@
  */
 package org.lorislab.maven.release.util;
 
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.spi.FileSystemProvider;
-import java.util.HashMap;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
-import java.util.regex.Pattern;
-import org.lorislab.maven.release.model.SearchPattern;
-import org.lorislab.maven.release.model.SearchResultItem;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.ZipException;
+import org.lorislab.maven.release.zip.ZipArchive;
+import org.lorislab.maven.release.zip.ZipArchiveEntry;
+import org.lorislab.maven.release.zip.ZipArchiveWriter;
+import org.lorislab.maven.release.zip.ZipCompression;
+import org.lorislab.maven.release.zip.ZipEntryData;
+import org.lorislab.maven.release.zip.ZipFanOutCallback;
 
 /**
  * The file system utility.
@@ -45,30 +57,11 @@ import org.lorislab.maven.release.model.SearchResultItem;
 public final class FileSystemUtil {
 
     /**
-     * The ZIP provider.
+     * The maximum number of the forked entry updates per worker thread. The
+     * updated entries are written in the order of the source archive, the
+     * window bounds the number of the updated entries kept in the memory.
      */
-    private static final FileSystemProvider ZIP_PROVIDER;
-
-    /**
-     * The ZIP environment.
-     */
-    private static final Map<String, String> ZIP_ENV = new HashMap<>();
-
-    /**
-     * Static block.
-     */
-    static {
-
-        ZIP_ENV.put("create", "true");
-
-        FileSystemProvider tmp = null;
-        for (FileSystemProvider provider : FileSystemProvider.installedProviders()) {
-            if ("jar".equalsIgnoreCase(provider.getScheme())) {
-                tmp = provider;
-            }
-        }
-        ZIP_PROVIDER = tmp;
-    }
+    private static final int WINDOW_SIZE = 2;
 
     /**
      * The default constructor.
@@ -78,30 +71,51 @@ public final class FileSystemUtil {
     }
 
     /**
-     * Copies the file from source to target.
+     * Copies the file from source to target. The data is transferred by the
+     * operating system without copying the data to the Java heap.
      *
      * @param source the source file.
      * @param target the target file.
      */
     public static void copyFile(Path source, Path target) {
-        try {
-            Files.copy(source, target);
-        } catch (Exception ex) {
-            throw new RuntimeException("Can not copy the source file " + source.toString() + " to target " + target.toString(), ex);
-        }
+        copyFile(source, target, SyncPolicy.NONE);
     }
 
     /**
-     * Moves the file from source to target.
+     * Copies the file from source to target. The file is copied to the
+     * temporary sibling file which is published to the target file when the
+     * copy is complete.
      *
      * @param source the source file.
      * @param target the target file.
+     * @param policy the synchronization policy.
+     * @see #publish(java.nio.file.Path, java.nio.file.Path, org.lorislab.maven.release.util.SyncPolicy)
      */
-    public static void moveFile(Path source, Path target) {
+    public static void copyFile(Path source, Path target, SyncPolicy policy) {
+        Path temp = null;
         try {
-            Files.move(source, target);
+            if (Files.exists(target)) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            temp = createTempFile(target);
+            try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+                    FileChannel output = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long size = input.size();
+                long count = 0;
+                while (count < size) {
+                    long n = input.transferTo(count, size - count, output);
+                    if (n <= 0) {
+                        throw new EOFException("Unexpected end of the file " + source.toString());
+                    }
+                    count += n;
+                }
+            }
+            publish(temp, target, policy);
+            temp = null;
         } catch (Exception ex) {
-            throw new RuntimeException("Can not move the source file " + source.toString() + " to target " + target.toString(), ex);
+            throw new RuntimeException("Can not copy the source file " + source.toString() + " to target " + target.toString(), ex);
+        } finally {
+            deleteQuietly(temp);
         }
     }
 
@@ -132,6 +146,160 @@ public final class FileSystemUtil {
         return result;
     }
 
+    /**
+     * Saves the properties to the file.
+     *
+     * @param file the property file.
+     * @param properties the properties.
+     */
+    public static void saveProperties(Path file, Properties properties) {
+        saveProperties(file, properties, SyncPolicy.NONE);
+    }
+
+    /**
+     * Saves the properties to the file. The properties are written to the
+     * temporary sibling file which is published to the target file.
+     *
+     * @param file the property file.
+     * @param properties the properties.
+     * @param policy the synchronization policy.
+     */
+    public static void saveProperties(Path file, Properties properties, SyncPolicy policy) {
+        Path temp = null;
+        try {
+            temp = createTempFile(file);
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                properties.store(output, null);
+            }
+            publish(temp, file, policy);
+            temp = null;
+        } catch (Exception ex) {
+            throw new RuntimeException("Error saving the property to file: " + file.toString(), ex);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Writes the data to the file. The data is written to the temporary
+     * sibling file which is published to the target file.
+     *
+     * @param file the target file.
+     * @param data the data.
+     * @param policy the synchronization policy.
+     */
+    public static void writeFile(Path file, byte[] data, SyncPolicy policy) {
+        Path temp = null;
+        try {
+            temp = createTempFile(file);
+            Files.write(temp, data);
+            publish(temp, file, policy);
+            temp = null;
+        } catch (Exception ex) {
+            throw new RuntimeException("Error writing the file: " + file.toString(), ex);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Creates the temporary sibling file of the target file. The parent
+     * directory is created if it does not exist.
+     *
+     * @param target the target file.
+     * @return the temporary file.
+     * @throws IOException if the method fails.
+     */
+    public static Path createTempFile(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // the temporary file has the default permissions of the published file
+        while (true) {
+            try {
+                return Files.createFile(parent.resolve(createTempName(target)));
+            } catch (FileAlreadyExistsException ex) {
+                // try the next name
+            }
+        }
+    }
+
+    /**
+     * Creates the temporary sibling directory of the target directory.
+     *
+     * @param target the target directory.
+     * @return the temporary directory.
+     * @throws IOException if the method fails.
+     */
+    public static Path createTempDirectory(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        while (true) {
+            try {
+                return Files.createDirectory(parent.resolve(createTempName(target)));
+            } catch (FileAlreadyExistsException ex) {
+                // try the next name
+            }
+        }
+    }
+
+    /**
+     * Creates the random hidden name of the temporary sibling of the target.
+     *
+     * @param target the target file or directory.
+     * @return the name of the temporary sibling.
+     */
+    private static String createTempName(Path target) {
+        return "." + target.getFileName() + "-" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp";
+    }
+
+    /**
+     * Publishes the complete temporary file or directory to the target path.
+     * The temporary file is synchronized according to the policy and moved
+     * to the target path with the atomic move, the existing target file is
+     * replaced. The existing target directory is deleted before the move.
+     *
+     * @param temp the temporary file or directory.
+     * @param target the target path.
+     * @param policy the synchronization policy.
+     * @throws IOException if the method fails.
+     */
+    public static void publish(Path temp, Path target, SyncPolicy policy) throws IOException {
+        boolean directory = Files.isDirectory(temp);
+        if (policy != SyncPolicy.NONE && !directory) {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        if (directory && Files.exists(target)) {
+            delete(target);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (policy == SyncPolicy.DIRECTORY) {
+            try (FileChannel channel = FileChannel.open(target.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException ex) {
+                // the directory can not be synchronized on this platform
+            }
+        }
+    }
+
+    /**
+     * Deletes the temporary file or directory and ignores the errors.
+     *
+     * @param path the temporary file or directory or {@code null}.
+     */
+    private static void deleteQuietly(Path path) {
+        try {
+            delete(path);
+        } catch (RuntimeException ex) {
+            // the temporary file stays in the directory
+        }
+    }
+
     /**
      * Creates the directory with {@code name} in the parent directory
      * {@code parent}
@@ -158,183 +326,369 @@ public final class FileSystemUtil {
         return result;
     }
 
-    public static void getFileInZip(final Path zipFile, String file, final ProcessingCallback callback) {
-        try (FileSystem zipfs = ZIP_PROVIDER.newFileSystem(zipFile, new HashMap<String, Object>())) {
-            Path path = zipfs.getPath(file);
-            if (Files.exists(path)) {
-                callback.execute(path);
-            }
-        } catch (Exception ex) {
-            throw new RuntimeException("Error searching files inside the ZIP archive " + zipFile.toString(), ex);
-        }
-    }
-
     /**
-     * Processing the ZIP file.
+     * Copies the source archive to several target archives and extracts the
+     * target archives to the target directories. The target archives and
+     * directories are written to the temporary siblings which are published
+     * to the target paths only if the whole copy succeeds, the failed copy
+     * does not leave the partial archive in the target path.
      *
-     * @param zipFile the ZIP file.
-     * @param pattern the resource pattern.
+     * @param sourceFile the source archive.
+     * @param targetFiles the list of target archives.
+     * @param targetDirs the list of target directories with one item for each
+     * target archive or {@code null}.
      * @param callback the call-back method.
+     * @param compression the compression strategy of the changed entries or
+     * {@code null} to keep the compression method of the source entries.
+     * @param policy the synchronization policy of the target archives.
+     * @param pool the worker pool or {@code null} for the sequential copy.
+     * @return the set of changed entries.
+     * @see #publish(java.nio.file.Path, java.nio.file.Path, org.lorislab.maven.release.util.SyncPolicy)
      */
-    public static void processFileInsideZip(final Path zipFile, final Pattern pattern, final ProcessingCallback callback) {
+    public static Set<String> copyZip(final Path sourceFile, final List<Path> targetFiles, final List<Path> targetDirs, final ZipFanOutCallback callback, final ZipCompression compression, final SyncPolicy policy, final ForkJoinPool pool) {
 
-        try (FileSystem zipfs = ZIP_PROVIDER.newFileSystem(zipFile, new HashMap<String, Object>())) {
-            Files.walkFileTree(zipfs.getPath("/"), new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                    return FileVisitResult.CONTINUE;
+        if (sourceFile == null || targetFiles == null || targetFiles.isEmpty()) {
+            throw new RuntimeException("The source file or target file can not be null!");
+        }
+
+        List<Path> temps = new ArrayList<>();
+        try {
+            final List<Path> tempFiles = new ArrayList<>(targetFiles.size());
+            for (Path targetFile : targetFiles) {
+                tempFiles.add(createTempFile(targetFile));
+                temps.add(tempFiles.get(tempFiles.size() - 1));
+            }
+            List<Path> dirs = null;
+            if (targetDirs != null) {
+                dirs = new ArrayList<>(targetDirs.size());
+                for (Path targetDir : targetDirs) {
+                    dirs.add(targetDir == null ? null : createTempDirectory(targetDir));
+                    if (targetDir != null) {
+                        temps.add(dirs.get(dirs.size() - 1));
+                    }
+                }
+            }
+            final List<Path> tempDirs = dirs;
+
+            Set<String> result;
+            final List<ZipArchiveWriter> writers = new ArrayList<>(targetFiles.size());
+            try (final ZipArchive archive = new ZipArchive(sourceFile)) {
+                try {
+                    for (Path tempFile : tempFiles) {
+                        writers.add(new ZipArchiveWriter(FileChannel.open(tempFile, StandardOpenOption.WRITE)));
+                    }
+                    if (pool == null || ForkJoinTask.getPool() == pool) {
+                        // the task of the pool forks the entries to the same pool
+                        result = copyZip(archive, writers, tempDirs, callback, compression);
+                    } else {
+                        result = pool.invoke(ForkJoinTask.adapt(new Callable<Set<String>>() {
+                            @Override
+                            public Set<String> call() throws Exception {
+                                return copyZip(archive, writers, tempDirs, callback, compression);
+                            }
+                        }));
+                    }
+                } finally {
+                    close(writers);
                 }
+            }
 
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    boolean matches = pattern.matcher(file.toString()).matches();
-                    if (matches) {
-                        try {
-                            callback.execute(file);
-                            return FileVisitResult.TERMINATE;
-                        } catch (Exception ex) {
-                            throw new RuntimeException("Error execute the file: " + file.toString(), ex);
-                        }
+            // the new files replace the previous files instead of writing through them
+            for (int i = 0; i < targetFiles.size(); i++) {
+                publish(tempFiles.get(i), targetFiles.get(i), policy);
+                temps.remove(tempFiles.get(i));
+            }
+            if (tempDirs != null) {
+                for (int i = 0; i < targetDirs.size(); i++) {
+                    if (tempDirs.get(i) != null) {
+                        publish(tempDirs.get(i), targetDirs.get(i), policy);
+                        temps.remove(tempDirs.get(i));
                     }
-                    return FileVisitResult.CONTINUE;
                 }
-            });
+            }
+            return result;
         } catch (Exception ex) {
-            throw new RuntimeException("Error searching files inside the ZIP archive " + zipFile.toString(), ex);
+            throw new RuntimeException("Error copying the zip file " + sourceFile.toString() + " to the zip file " + targetFiles.toString(), ex);
+        } finally {
+            for (Path temp : temps) {
+                deleteQuietly(temp);
+            }
         }
     }
 
     /**
-     * Finds all files in the root directory corresponding the pattern.
+     * Copies the entries of the source archive to the archive writers. The
+     * changed entries are compressed with the compression strategy.
      *
-     * @param dir the root directory.
-     * @param patterns the file pattern.
-     * @return the set of corresponding files.
+     * @param archive the source archive.
+     * @param writers the list of archive writers.
+     * @param targetDirs the list of target directories with one item for each
+     * archive writer or {@code null}.
+     * @param callback the call-back method.
+     * @param compression the compression strategy of the changed entries or
+     * {@code null} to keep the compression method of the source entries.
+     * @return the set of entries changed in any archive writer.
+     * @throws Exception if the method fails.
      */
-    public static Set<SearchResultItem> findFilesInDirectory(final Path dir, final Set<SearchPattern> patterns) {
+    public static Set<String> copyZip(final ZipArchive archive, final List<ZipArchiveWriter> writers, final List<Path> targetDirs, final ZipFanOutCallback callback, final ZipCompression compression) throws Exception {
+        final List<ZipArchiveEntry> entries = archive.getEntries();
+
+        // the sliding window of the forked entry updates
+        List<ForkJoinTask<EntryUpdate>> tasks = null;
+        int window = 0;
+        if (callback != null && ForkJoinTask.inForkJoinPool()) {
+            tasks = new ArrayList<>(entries.size());
+            window = WINDOW_SIZE * ForkJoinTask.getPool().getParallelism();
+        }
 
-        final Set<SearchResultItem> result = new HashSet<>();
+        Set<String> result = new HashSet<>();
+        boolean completed = false;
         try {
-            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
-
-                @Override
-                public FileVisitResult preVisitDirectory(Path path,
-                        BasicFileAttributes atts) throws IOException {
-                    return FileVisitResult.CONTINUE;
+            for (int i = 0; i < entries.size(); i++) {
+                ZipArchiveEntry entry = entries.get(i);
+                EntryUpdate update = null;
+                if (tasks != null) {
+                    while (tasks.size() < entries.size() && tasks.size() <= i + window) {
+                        final ZipArchiveEntry next = entries.get(tasks.size());
+                        tasks.add(ForkJoinTask.adapt(new Callable<EntryUpdate>() {
+                            @Override
+                            public EntryUpdate call() throws Exception {
+                                return EntryUpdate.create(callback.execute(archive, next), next, compression);
+                            }
+                        }).fork());
+                    }
+                    update = tasks.get(i).join();
+                    // the written entry is released
+                    tasks.set(i, null);
+                } else if (callback != null) {
+                    update = EntryUpdate.create(callback.execute(archive, entry), entry, compression);
                 }
-
-                @Override
-                public FileVisitResult visitFile(Path path, BasicFileAttributes mainAtts)
-                        throws IOException {
-
-                    for (SearchPattern pattern : patterns) {
-                        boolean matches = pattern.getPattern().matcher(path.toString()).matches();
-                        if (matches) {
-
-                            SearchResultItem item = new SearchResultItem(path,pattern.getExtensions());
-                            result.add(item);
-                        }
+                if (targetDirs != null) {
+                    extractEntry(archive, entry, update == null ? null : update.data, targetDirs);
+                }
+                if (update == null) {
+                    ZipArchiveWriter.copyEntry(archive, entry, writers);
+                    continue;
+                }
+                result.add(entry.getName());
+                for (int w = 0; w < writers.size(); w++) {
+                    if (update.compressed[w] != null) {
+                        writers.get(w).putEntry(entry, update.compressed[w]);
+                    } else {
+                        writers.get(w).copyEntry(archive, entry);
                     }
-                    return FileVisitResult.CONTINUE;
                 }
-
-            });
-        } catch (Exception ex) {
-            throw new RuntimeException("Error searching files in the directory " + dir.toString(), ex);
+            }
+            completed = true;
+        } finally {
+            if (!completed && tasks != null) {
+                // the forked entry updates are not needed after the failure
+                for (ForkJoinTask<EntryUpdate> task : tasks) {
+                    if (task != null) {
+                        task.cancel(false);
+                    }
+                }
+            }
         }
         return result;
     }
 
     /**
-     * Unzip the source file to the target directory.
+     * Extracts the entry to the target directories. The new entry data is
+     * written as it is, the unchanged entry is decompressed only once for all
+     * target directories.
      *
-     * @param sourceFile the source archive file.
-     * @param targetDir the target directory.
+     * @param archive the source archive.
+     * @param entry the entry.
+     * @param data the new entry data for each target directory or
+     * {@code null} if the entry is not changed.
+     * @param targetDirs the list of target directories.
+     * @throws IOException if the method fails.
      */
-    public static void unzip(final Path sourceFile, final Path targetDir) {
-
-        if (sourceFile == null || targetDir == null) {
-            throw new RuntimeException("The source file or target directory can not be null!");
+    private static void extractEntry(ZipArchive archive, ZipArchiveEntry entry, byte[][] data, List<Path> targetDirs) throws IOException {
+        List<Path> unchanged = new ArrayList<>(targetDirs.size());
+        for (int i = 0; i < targetDirs.size(); i++) {
+            Path dir = targetDirs.get(i);
+            if (dir == null) {
+                continue;
+            }
+            Path file = dir.resolve(entry.getName()).normalize();
+            if (!file.startsWith(dir.normalize())) {
+                throw new ZipException("Invalid entry name " + entry.getName() + " in the archive " + archive.getName());
+            }
+            if (entry.isDirectory()) {
+                Files.createDirectories(file);
+            } else if (data != null && data[i] != null) {
+                Files.createDirectories(file.getParent());
+                Files.write(file, data[i]);
+            } else {
+                Files.createDirectories(file.getParent());
+                unchanged.add(file);
+            }
         }
-
-        if (!Files.isRegularFile(sourceFile)) {
-            throw new RuntimeException("The source file is not regular file!");
+        if (unchanged.isEmpty()) {
+            return;
         }
-
+        if (entry.getMethod() == ZipArchiveEntry.STORED) {
+            // the stored data is transferred by the operating system
+            long offset = archive.getDataOffset(entry);
+            for (Path file : unchanged) {
+                try (FileChannel output = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    archive.transferTo(offset, entry.getCompressedSize(), output);
+                }
+            }
+            return;
+        }
+        List<OutputStream> outputs = new ArrayList<>(unchanged.size());
         try {
-            if (!Files.exists(targetDir)) {
-                Files.createDirectories(targetDir);
+            for (Path file : unchanged) {
+                outputs.add(Files.newOutputStream(file));
+            }
+            archive.writeEntry(entry, outputs);
+        } finally {
+            for (OutputStream output : outputs) {
+                output.close();
             }
-        } catch (Exception ex) {
-            throw new RuntimeException("Error create the target directory: " + targetDir.toString(), ex);
         }
+    }
 
-        try (FileSystem zipfs2 = FileSystems.newFileSystem(sourceFile, null)) {
-
-            Files.walkFileTree(zipfs2.getPath("/"), new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                    return FileVisitResult.CONTINUE;
-                }
+    /**
+     * The updated entry. The new entry data is compressed by the task which
+     * created the data, the entries are compressed in parallel and written in
+     * the order of the source archive.
+     */
+    private static final class EntryUpdate {
+
+        /**
+         * The new uncompressed entry data for each target archive.
+         */
+        private final byte[][] data;
+
+        /**
+         * The compressed entry data for each target archive.
+         */
+        private final ZipEntryData[] compressed;
+
+        /**
+         * The default constructor.
+         *
+         * @param data the new uncompressed entry data.
+         * @param compressed the compressed entry data.
+         */
+        private EntryUpdate(byte[][] data, ZipEntryData[] compressed) {
+            this.data = data;
+            this.compressed = compressed;
+        }
 
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Path toFile = Paths.get(targetDir.toString(), file.toString());
-                    Files.createDirectories(toFile);
-                    Files.copy(file, toFile, StandardCopyOption.REPLACE_EXISTING);
-                    return FileVisitResult.CONTINUE;
+        /**
+         * Creates the updated entry.
+         *
+         * @param data the new uncompressed entry data for each target archive
+         * or {@code null} if the entry is not changed.
+         * @param entry the source entry.
+         * @param compression the compression strategy or {@code null} to keep
+         * the compression method of the source entry.
+         * @return the updated entry or {@code null} if the entry is not
+         * changed.
+         */
+        static EntryUpdate create(byte[][] data, ZipArchiveEntry entry, ZipCompression compression) {
+            if (data == null) {
+                return null;
+            }
+            ZipEntryData[] compressed = new ZipEntryData[data.length];
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != null) {
+                    // the same data is compressed only once
+                    for (int j = 0; j < i && compressed[i] == null; j++) {
+                        if (data[j] == data[i]) {
+                            compressed[i] = compressed[j];
+                        }
+                    }
+                    if (compressed[i] == null) {
+                        if (compression == null) {
+                            compressed[i] = ZipEntryData.create(entry.getMethod(), data[i], data[i].length);
+                        } else {
+                            compressed[i] = compression.compress(entry, data[i]);
+                        }
+                    }
                 }
-            });
-        } catch (Exception ex) {
-            throw new RuntimeException("Error creating the target directory " + targetDir.toString() + "from archive file " + sourceFile.toString(), ex);
+            }
+            return new EntryUpdate(data, compressed);
         }
     }
 
     /**
-     * Creates the zip archive from the source directory.
+     * Closes all archive writers.
      *
-     * @param sourceDir the source directory.
-     * @param targetFile the target archive.
+     * @param writers the list of archive writers.
+     * @throws IOException if the method fails.
      */
-    public static void zip(final Path sourceDir, final Path targetFile) {
-
-        if (sourceDir == null || targetFile == null) {
-            throw new RuntimeException("The source directory or target file can not be null!");
+    private static void close(List<ZipArchiveWriter> writers) throws IOException {
+        IOException error = null;
+        for (ZipArchiveWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                if (error == null) {
+                    error = ex;
+                }
+            }
         }
-
-        if (!Files.isDirectory(sourceDir)) {
-            throw new RuntimeException("The source directory is not directory!");
+        if (error != null) {
+            throw error;
         }
+    }
 
-        if (Files.exists(targetFile)) {
-            throw new RuntimeException("The target file already exists!");
+    /**
+     * Computes the SHA-256 hash of the file content.
+     *
+     * @param path the file.
+     * @return the hexadecimal SHA-256 hash of the file content.
+     */
+    public static String hash(Path path) {
+        try (InputStream input = Files.newInputStream(path)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+            return toHex(digest.digest());
+        } catch (Exception ex) {
+            throw new RuntimeException("Error computing the hash of the file " + path.toString(), ex);
         }
+    }
 
-        try (FileSystem zipfs3 = ZIP_PROVIDER.newFileSystem(targetFile, ZIP_ENV)) {
-
-            Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>() {
-
-                @Override
-                public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes atts) throws IOException {
-                    if (!sourceDir.equals(path)) {
-                        Path pathInZipfile = zipfs3.getPath(path.toString().replace(sourceDir.toString(), ""));
-                        Files.createDirectories(pathInZipfile);
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult visitFile(Path path, BasicFileAttributes mainAtts) throws IOException {
-                    Path pathInZipfile = zipfs3.getPath(path.toString().replace(sourceDir.toString(), ""));
-                    Files.copy(path, pathInZipfile);
-                    return FileVisitResult.CONTINUE;
-                }
-
-            });
-
+    /**
+     * Computes the SHA-256 hash of the data.
+     *
+     * @param data the data.
+     * @param length the data length.
+     * @return the hexadecimal SHA-256 hash of the data.
+     */
+    public static String hash(byte[] data, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, 0, length);
+            return toHex(digest.digest());
         } catch (Exception ex) {
-            throw new RuntimeException("Error creating the zip file " + targetFile.toString() + " from the directory " + sourceDir.toString(), ex);
+            throw new RuntimeException("Error computing the hash of the data", ex);
+        }
+    }
+
+    /**
+     * Converts the bytes to the hexadecimal string.
+     *
+     * @param data the bytes.
+     * @return the hexadecimal string.
+     */
+    public static String toHex(byte[] data) {
+        StringBuilder result = new StringBuilder(data.length * 2);
+        for (byte b : data) {
+            result.append(Character.forDigit((b >>> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
         }
+        return result.toString();
     }
 
     /**
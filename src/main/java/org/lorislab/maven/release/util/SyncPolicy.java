@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.util;
+
+/**
+ * The synchronization policy of the published files. The files are written
+ * to the temporary sibling file and moved to the target path when they are
+ * complete, the policy defines what is synchronized to the storage device
+ * before the move.
+ *
+ * @author Andrej_Petras
+ */
+public enum SyncPolicy {
+
+    /**
+     * The files are not synchronized, the operating system writes the data
+     * later.
+     */
+    NONE,
+
+    /**
+     * The file data is synchronized before the file is moved to the target
+     * path.
+     */
+    FILE,
+
+    /**
+     * The file data is synchronized before the move and the parent directory
+     * is synchronized after the move.
+     */
+    DIRECTORY;
+}
@@ -16,14 +16,12 @@
 package org.lorislab.maven.release.util;
 
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
+import java.io.OutputStream;
+import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamConstants;
-import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
  * The XML utility.
@@ -33,83 +31,56 @@ import javax.xml.stream.XMLStreamReader;
 public final class XMLUtil {
 
     /**
-     * The default constructor.
+     * The XML input factory. The DTD and the external entities are not
+     * supported.
      */
-    private XMLUtil() {
-        // empty constructor
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    /**
+     * The XML output factory.
+     */
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * The input factory configuration.
+     */
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
     }
 
     /**
-     * Gets the version of the XML.
-     *
-     * @param path the XML file.
-     * @return the corresponding version of the XML.
+     * The default constructor.
      */
-    public static String getXMLVersion(final Path path) {
-        try (InputStream inputStream = Files.newInputStream(path)) {
-            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
-            for (int event; (event = reader.next()) != XMLStreamConstants.END_DOCUMENT;) {
-                if (event == XMLStreamConstants.START_ELEMENT) {
-                    String tmp = reader.getLocalName();
-                    if ("persistence".equals(tmp)) {
-                        for (int i = 0; i < reader.getAttributeCount(); i++) {
-                            if ("version".equals(reader.getAttributeName(i).toString())) {
-                                return reader.getAttributeValue(i);
-                            }                            
-                        }
-                    }
-                }
-            }
-        } catch (Exception ex) {
-            throw new RuntimeException("Error reading the persistence.xml version.", ex);
-        }
-        return null;
+    private XMLUtil() {
+        // empty constructor
     }
 
     /**
-     * Saves the object to the file.
+     * Creates the XML event reader with the shared input factory.
      *
-     * @param <T> the object type.
-     * @param path the XML file.
-     * @param object the object to be saved.
+     * @param inputStream the XML input stream.
+     * @return the XML event reader.
+     * @throws XMLStreamException if the method fails.
      */
-    public static <T> void saveObject(Path path, T object) {
-
-        if (path == null || object == null) {
-            throw new RuntimeException("The path to file or object is null!");
-        }
-
-        try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(object.getClass());
-            Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-            jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            jaxbMarshaller.marshal(object, path.toFile());
-        } catch (Exception ex) {
-            throw new RuntimeException("Error saving the object to path " + path.toString(), ex);
+    public static XMLEventReader createEventReader(final InputStream inputStream) throws XMLStreamException {
+        // the factory is configured once, only the creation is serialized
+        synchronized (INPUT_FACTORY) {
+            return INPUT_FACTORY.createXMLEventReader(inputStream);
         }
     }
 
     /**
-     * Loads the object from the file.
+     * Creates the XML stream writer with the shared output factory.
      *
-     * @param <T> the object type.
-     * @param path the XML file.
-     * @param clazz the class of the object.
-     * @return the corresponding object.
+     * @param outputStream the XML output stream.
+     * @param encoding the output encoding.
+     * @return the XML stream writer.
+     * @throws XMLStreamException if the method fails.
      */
-    public static <T> T loadObject(Path path, Class<T> clazz) {
-        T result;
-        if (path == null || clazz == null) {
-            throw new RuntimeException("The path to file or class is null!");
-        }
-
-        try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(clazz);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            result = (T) jaxbUnmarshaller.unmarshal(path.toFile());
-        } catch (Exception ex) {
-            throw new RuntimeException("Error loading the xml from path " + path.toString(), ex);
+    public static XMLStreamWriter createStreamWriter(final OutputStream outputStream, final String encoding) throws XMLStreamException {
+        synchronized (OUTPUT_FACTORY) {
+            return OUTPUT_FACTORY.createXMLStreamWriter(outputStream, encoding);
         }
-        return result;
     }
 }
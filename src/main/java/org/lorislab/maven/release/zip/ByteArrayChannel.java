@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * The read-only byte channel over the byte array.
+ *
+ * @author Andrej_Petras
+ */
+public class ByteArrayChannel implements SeekableByteChannel {
+
+    /**
+     * The data.
+     */
+    private final byte[] data;
+
+    /**
+     * The data length.
+     */
+    private final int length;
+
+    /**
+     * The current position.
+     */
+    private long position;
+
+    /**
+     * The open flag.
+     */
+    private boolean open = true;
+
+    /**
+     * The default constructor.
+     *
+     * @param data the data.
+     * @param length the data length.
+     */
+    public ByteArrayChannel(byte[] data, int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int read(ByteBuffer dst) throws ClosedChannelException {
+        checkOpen();
+        if (position >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(dst.remaining(), length - position);
+        dst.put(data, (int) position, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long position() throws ClosedChannelException {
+        checkOpen();
+        return position;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public SeekableByteChannel position(long newPosition) throws ClosedChannelException {
+        checkOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("The position can not be negative!");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long size() throws ClosedChannelException {
+        checkOpen();
+        return length;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    /**
+     * Checks if the channel is open.
+     *
+     * @throws ClosedChannelException if the channel is closed.
+     */
+    private void checkOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,637 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The ZIP archive reader. The reader reads only the central directory of the
+ * archive and gives access to the raw (compressed) and the uncompressed data
+ * of the entries. The ZIP64 format (archives or entries over 4 GB or 65535 or
+ * more entries) is not supported.
+ *
+ * @author Andrej_Petras
+ */
+public class ZipArchive implements Closeable {
+
+    /**
+     * The local file header signature.
+     */
+    static final int LOCSIG = 0x04034b50;
+
+    /**
+     * The central directory file header signature.
+     */
+    static final int CENSIG = 0x02014b50;
+
+    /**
+     * The end of central directory signature.
+     */
+    static final int ENDSIG = 0x06054b50;
+
+    /**
+     * The data descriptor signature.
+     */
+    static final int EXTSIG = 0x08074b50;
+
+    /**
+     * The local file header size.
+     */
+    static final int LOCHDR = 30;
+
+    /**
+     * The central directory file header size.
+     */
+    static final int CENHDR = 46;
+
+    /**
+     * The end of central directory size.
+     */
+    static final int ENDHDR = 22;
+
+    /**
+     * The data descriptor flag.
+     */
+    static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+    /**
+     * The ZIP64 marker value.
+     */
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    /**
+     * The buffer size.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The archive name.
+     */
+    private final String name;
+
+    /**
+     * The archive channel.
+     */
+    private final SeekableByteChannel channel;
+
+    /**
+     * The list of entries in the central directory order.
+     */
+    private final List<ZipArchiveEntry> entries;
+
+    /**
+     * The entries by name.
+     */
+    private final Map<String, ZipArchiveEntry> index;
+
+    /**
+     * Opens the archive file.
+     *
+     * @param path the archive file.
+     * @throws IOException if the method fails.
+     */
+    public ZipArchive(Path path) throws IOException {
+        this(path.toString(), FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Opens the archive in the memory.
+     *
+     * @param name the archive name.
+     * @param data the archive data.
+     * @param length the archive data length.
+     * @throws IOException if the method fails.
+     */
+    public ZipArchive(String name, byte[] data, int length) throws IOException {
+        this(name, new ByteArrayChannel(data, length));
+    }
+
+    /**
+     * The default constructor.
+     *
+     * @param name the archive name.
+     * @param channel the archive channel.
+     * @throws IOException if the method fails.
+     */
+    private ZipArchive(String name, SeekableByteChannel channel) throws IOException {
+        this.name = name;
+        this.channel = channel;
+        try {
+            this.entries = Collections.unmodifiableList(readCentralDirectory());
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        this.index = new HashMap<>();
+        for (ZipArchiveEntry entry : entries) {
+            index.put(entry.getName(), entry);
+        }
+    }
+
+    /**
+     * Gets the archive name.
+     *
+     * @return the archive name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the list of entries in the central directory order.
+     *
+     * @return the list of entries.
+     */
+    public List<ZipArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the entry by name.
+     *
+     * @param name the entry name.
+     * @return the corresponding entry or {@code null} if the entry does not
+     * exists.
+     */
+    public ZipArchiveEntry getEntry(String name) {
+        return index.get(name);
+    }
+
+    /**
+     * Gets the offset of the entry data.
+     *
+     * @param entry the entry.
+     * @return the offset of the entry data.
+     * @throws IOException if the method fails.
+     */
+    public long getDataOffset(ZipArchiveEntry entry) throws IOException {
+        ByteBuffer header = read(entry.getLocalHeaderOffset(), LOCHDR);
+        if (header.getInt(0) != LOCSIG) {
+            throw new ZipException("Invalid local file header of the entry " + entry.getName() + " in the archive " + name);
+        }
+        return entry.getLocalHeaderOffset() + LOCHDR + u16(header, 26) + u16(header, 28);
+    }
+
+    /**
+     * Gets the length of the raw entry record. The record contains the local
+     * file header, the compressed data and the optional data descriptor.
+     *
+     * @param entry the entry.
+     * @return the length of the raw entry record.
+     * @throws IOException if the method fails.
+     */
+    public long getRecordLength(ZipArchiveEntry entry) throws IOException {
+        long end = getDataOffset(entry) + entry.getCompressedSize();
+        if ((entry.getFlags() & FLAG_DATA_DESCRIPTOR) != 0) {
+            // the data descriptor signature is optional
+            end += read(end, 4).getInt(0) == EXTSIG ? 16 : 12;
+        }
+        return end - entry.getLocalHeaderOffset();
+    }
+
+    /**
+     * Opens the input stream of the raw entry record.
+     *
+     * @param entry the entry.
+     * @return the input stream of the raw entry record.
+     * @throws IOException if the method fails.
+     * @see #getRecordLength(org.lorislab.maven.release.zip.ZipArchiveEntry)
+     */
+    public InputStream getRecordInputStream(ZipArchiveEntry entry) throws IOException {
+        return new ChannelInputStream(entry.getLocalHeaderOffset(), getRecordLength(entry));
+    }
+
+    /**
+     * Opens the input stream of the raw (compressed) entry data.
+     *
+     * @param entry the entry.
+     * @return the input stream of the raw entry data.
+     * @throws IOException if the method fails.
+     */
+    public InputStream getRawInputStream(ZipArchiveEntry entry) throws IOException {
+        return new ChannelInputStream(getDataOffset(entry), entry.getCompressedSize());
+    }
+
+    /**
+     * Transfers the region of the archive to the target channel. The region
+     * of the archive file is transferred by the operating system without
+     * copying the data to the Java heap.
+     *
+     * @param position the region position.
+     * @param length the region length.
+     * @param target the target channel.
+     * @throws IOException if the method fails.
+     */
+    public void transferTo(long position, long length, WritableByteChannel target) throws IOException {
+        if (channel instanceof FileChannel) {
+            FileChannel file = (FileChannel) channel;
+            long count = 0;
+            while (count < length) {
+                long n = file.transferTo(position + count, length - count, target);
+                if (n <= 0) {
+                    throw new EOFException("Unexpected end of the archive " + name);
+                }
+                count += n;
+            }
+            return;
+        }
+        byte[] buffer = ZipResourcePool.borrowBuffer();
+        try (InputStream input = new ChannelInputStream(position, length)) {
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                ByteBuffer tmp = ByteBuffer.wrap(buffer, 0, n);
+                while (tmp.hasRemaining()) {
+                    target.write(tmp);
+                }
+            }
+        } finally {
+            ZipResourcePool.release(buffer);
+        }
+    }
+
+    /**
+     * Opens the input stream of the uncompressed entry data.
+     *
+     * @param entry the entry.
+     * @return the input stream of the uncompressed entry data.
+     * @throws IOException if the method fails.
+     */
+    public InputStream getInputStream(ZipArchiveEntry entry) throws IOException {
+        switch (entry.getMethod()) {
+            case ZipArchiveEntry.STORED:
+                return getRawInputStream(entry);
+            case ZipArchiveEntry.DEFLATED:
+                return new EntryInflaterInputStream(getRawInputStream(entry));
+            default:
+                throw new ZipException("Not supported compression method " + entry.getMethod() + " of the entry " + entry.getName() + " in the archive " + name);
+        }
+    }
+
+    /**
+     * Reads the uncompressed entry data to the memory.
+     *
+     * @param entry the entry.
+     * @return the uncompressed entry data.
+     * @throws IOException if the method fails.
+     */
+    public byte[] readEntry(ZipArchiveEntry entry) throws IOException {
+        if (entry.getSize() > Integer.MAX_VALUE - 8) {
+            throw new ZipException("The entry " + entry.getName() + " in the archive " + name + " is too large");
+        }
+        byte[] result = new byte[(int) entry.getSize()];
+        try (InputStream input = getInputStream(entry)) {
+            int count = 0;
+            while (count < result.length) {
+                int n = input.read(result, count, result.length - count);
+                if (n < 0) {
+                    throw new EOFException("Unexpected end of the entry " + entry.getName() + " in the archive " + name);
+                }
+                count += n;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the uncompressed entry data to the output streams. The entry is
+     * decompressed only once with the pooled buffer.
+     *
+     * @param entry the entry.
+     * @param outputs the output streams.
+     * @throws IOException if the method fails.
+     */
+    public void writeEntry(ZipArchiveEntry entry, List<OutputStream> outputs) throws IOException {
+        byte[] buffer = ZipResourcePool.borrowBuffer();
+        try (InputStream input = getInputStream(entry)) {
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                for (OutputStream output : outputs) {
+                    output.write(buffer, 0, n);
+                }
+            }
+        } finally {
+            ZipResourcePool.release(buffer);
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the central directory of the archive.
+     *
+     * @return the list of entries.
+     * @throws IOException if the method fails.
+     */
+    private List<ZipArchiveEntry> readCentralDirectory() throws IOException {
+        long size = channel.size();
+        if (size < ENDHDR) {
+            throw new ZipException("The file is not a ZIP archive " + name);
+        }
+
+        // find the end of central directory record
+        int tail = (int) Math.min(size, ENDHDR + 0xFFFF);
+        ByteBuffer buffer = read(size - tail, tail);
+        int end = -1;
+        for (int i = tail - ENDHDR; i >= 0 && end < 0; i--) {
+            if (buffer.getInt(i) == ENDSIG) {
+                end = i;
+            }
+        }
+        if (end < 0) {
+            throw new ZipException("Missing the end of central directory record in the archive " + name);
+        }
+
+        int total = u16(buffer, end + 10);
+        long cenSize = u32(buffer, end + 12);
+        long cenOffset = u32(buffer, end + 16);
+        if (total == 0xFFFF || cenSize == ZIP64_MAGIC || cenOffset == ZIP64_MAGIC) {
+            throw new ZipException("The ZIP64 format of the archive " + name + " is not supported (archives or entries over 4 GB or 65535 or more entries)");
+        }
+
+        // read the central directory
+        ByteBuffer cen = read(cenOffset, (int) cenSize);
+        List<ZipArchiveEntry> result = new ArrayList<>(total);
+        int pos = 0;
+        for (int i = 0; i < total; i++) {
+            if (cen.getInt(pos) != CENSIG) {
+                throw new ZipException("Invalid central directory header in the archive " + name);
+            }
+            int nameLength = u16(cen, pos + 28);
+            int extraLength = u16(cen, pos + 30);
+            int commentLength = u16(cen, pos + 32);
+            long compressedSize = u32(cen, pos + 20);
+            long entrySize = u32(cen, pos + 24);
+            long offset = u32(cen, pos + 42);
+            if (compressedSize == ZIP64_MAGIC || entrySize == ZIP64_MAGIC || offset == ZIP64_MAGIC) {
+                throw new ZipException("The ZIP64 format of the archive " + name + " is not supported (archives or entries over 4 GB or 65535 or more entries)");
+            }
+            int start = pos + CENHDR;
+            ZipArchiveEntry entry = new ZipArchiveEntry(
+                    bytes(cen, start, nameLength),
+                    u16(cen, pos + 4),
+                    u16(cen, pos + 8),
+                    u16(cen, pos + 10),
+                    u32(cen, pos + 12),
+                    u32(cen, pos + 16),
+                    compressedSize,
+                    entrySize,
+                    bytes(cen, start + nameLength, extraLength),
+                    bytes(cen, start + nameLength + extraLength, commentLength),
+                    u16(cen, pos + 36),
+                    u32(cen, pos + 38),
+                    offset,
+                    bytes(cen, pos, CENHDR + nameLength + extraLength + commentLength));
+            result.add(entry);
+            pos = start + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    /**
+     * Reads the data from the archive.
+     *
+     * @param position the position in the archive.
+     * @param length the data length.
+     * @return the corresponding little endian buffer.
+     * @throws IOException if the method fails.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        synchronized (channel) {
+            channel.position(position);
+            while (result.hasRemaining()) {
+                if (channel.read(result) < 0) {
+                    throw new EOFException("Unexpected end of the archive " + name);
+                }
+            }
+        }
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Gets the unsigned short value.
+     *
+     * @param buffer the buffer.
+     * @param index the index.
+     * @return the unsigned short value.
+     */
+    static int u16(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    /**
+     * Gets the unsigned integer value.
+     *
+     * @param buffer the buffer.
+     * @param index the index.
+     * @return the unsigned integer value.
+     */
+    static long u32(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Gets the bytes from the buffer.
+     *
+     * @param buffer the buffer.
+     * @param index the index.
+     * @param length the length.
+     * @return the bytes.
+     */
+    private static byte[] bytes(ByteBuffer buffer, int index, int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = buffer.get(index + i);
+        }
+        return result;
+    }
+
+    /**
+     * The input stream of the archive channel region.
+     */
+    private class ChannelInputStream extends InputStream {
+
+        /**
+         * The current position.
+         */
+        private long position;
+
+        /**
+         * The remaining bytes.
+         */
+        private long remaining;
+
+        /**
+         * The default constructor.
+         *
+         * @param position the start position.
+         * @param length the region length.
+         */
+        ChannelInputStream(long position, long length) {
+            this.position = position;
+            this.remaining = length;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int read() throws IOException {
+            byte[] tmp = new byte[1];
+            int n = read(tmp, 0, 1);
+            return n < 0 ? -1 : tmp[0] & 0xFF;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int n;
+            if (channel instanceof FileChannel) {
+                // the pooled direct buffer avoids the temporary native copy of the size of the read
+                ByteBuffer buffer = ZipResourcePool.borrowDirectBuffer();
+                try {
+                    buffer.limit((int) Math.min(Math.min(len, remaining), buffer.capacity()));
+                    n = ((FileChannel) channel).read(buffer, position);
+                    if (n > 0) {
+                        buffer.flip();
+                        buffer.get(b, off, n);
+                    }
+                } finally {
+                    ZipResourcePool.release(buffer);
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+                synchronized (channel) {
+                    channel.position(position);
+                    n = channel.read(buffer);
+                }
+            }
+            if (n < 0) {
+                throw new EOFException("Unexpected end of the archive " + name);
+            }
+            position += n;
+            remaining -= n;
+            return n;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public long skip(long n) {
+            long result = Math.max(0, Math.min(n, remaining));
+            position += result;
+            remaining -= result;
+            return result;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * The inflater input stream of the entry.
+     */
+    private static class EntryInflaterInputStream extends InflaterInputStream {
+
+        /**
+         * The end of the raw data flag.
+         */
+        private boolean eof;
+
+        /**
+         * The closed flag.
+         */
+        private boolean closed;
+
+        /**
+         * The default constructor.
+         *
+         * @param input the raw data input stream.
+         */
+        EntryInflaterInputStream(InputStream input) {
+            super(input, ZipResourcePool.borrowInflater(), BUFFER_SIZE);
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                // the inflater with nowrap option needs the dummy byte
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                ZipResourcePool.release(inf);
+                super.close();
+            }
+        }
+    }
+}
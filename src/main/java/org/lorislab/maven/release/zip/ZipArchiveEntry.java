@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * The ZIP archive entry read from the central directory.
+ *
+ * @author Andrej_Petras
+ */
+public class ZipArchiveEntry {
+
+    /**
+     * The stored compression method.
+     */
+    public static final int STORED = 0;
+
+    /**
+     * The deflated compression method.
+     */
+    public static final int DEFLATED = 8;
+
+    /**
+     * The entry name.
+     */
+    private final String name;
+
+    /**
+     * The raw entry name.
+     */
+    private final byte[] rawName;
+
+    /**
+     * The version made by.
+     */
+    private final int versionMadeBy;
+
+    /**
+     * The general purpose flags.
+     */
+    private final int flags;
+
+    /**
+     * The compression method.
+     */
+    private final int method;
+
+    /**
+     * The MS-DOS time and date.
+     */
+    private final long dosTime;
+
+    /**
+     * The CRC-32 of the uncompressed data.
+     */
+    private final long crc;
+
+    /**
+     * The compressed size.
+     */
+    private final long compressedSize;
+
+    /**
+     * The uncompressed size.
+     */
+    private final long size;
+
+    /**
+     * The central directory extra field.
+     */
+    private final byte[] extra;
+
+    /**
+     * The entry comment.
+     */
+    private final byte[] comment;
+
+    /**
+     * The internal file attributes.
+     */
+    private final int internalAttributes;
+
+    /**
+     * The external file attributes.
+     */
+    private final long externalAttributes;
+
+    /**
+     * The offset of the local file header.
+     */
+    private final long localHeaderOffset;
+
+    /**
+     * The raw central directory file header or {@code null} for the new
+     * entry.
+     */
+    private final byte[] centralHeader;
+
+    /**
+     * The default constructor.
+     *
+     * @param rawName the raw entry name.
+     * @param versionMadeBy the version made by.
+     * @param flags the general purpose flags.
+     * @param method the compression method.
+     * @param dosTime the MS-DOS time and date.
+     * @param crc the CRC-32 of the uncompressed data.
+     * @param compressedSize the compressed size.
+     * @param size the uncompressed size.
+     * @param extra the central directory extra field.
+     * @param comment the entry comment.
+     * @param internalAttributes the internal file attributes.
+     * @param externalAttributes the external file attributes.
+     * @param localHeaderOffset the offset of the local file header.
+     * @param centralHeader the raw central directory file header or
+     * {@code null} for the new entry.
+     */
+    public ZipArchiveEntry(byte[] rawName, int versionMadeBy, int flags, int method, long dosTime, long crc,
+            long compressedSize, long size, byte[] extra, byte[] comment, int internalAttributes,
+            long externalAttributes, long localHeaderOffset, byte[] centralHeader) {
+        this.rawName = rawName;
+        this.name = new String(rawName, StandardCharsets.UTF_8);
+        this.versionMadeBy = versionMadeBy;
+        this.flags = flags;
+        this.method = method;
+        this.dosTime = dosTime;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.extra = extra;
+        this.comment = comment;
+        this.internalAttributes = internalAttributes;
+        this.externalAttributes = externalAttributes;
+        this.localHeaderOffset = localHeaderOffset;
+        this.centralHeader = centralHeader;
+    }
+
+    /**
+     * Creates the copy of this entry at the new offset. The raw central
+     * directory file header is kept.
+     *
+     * @param localHeaderOffset the offset of the local file header.
+     * @return the corresponding entry.
+     */
+    public ZipArchiveEntry copy(long localHeaderOffset) {
+        return new ZipArchiveEntry(rawName, versionMadeBy, flags, method, dosTime, crc, compressedSize, size,
+                extra, comment, internalAttributes, externalAttributes, localHeaderOffset, centralHeader);
+    }
+
+    /**
+     * Creates the copy of this entry with new data.
+     *
+     * @param method the compression method.
+     * @param crc the CRC-32 of the uncompressed data.
+     * @param compressedSize the compressed size.
+     * @param size the uncompressed size.
+     * @param localHeaderOffset the offset of the local file header.
+     * @return the corresponding entry.
+     */
+    public ZipArchiveEntry copy(int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+        return new ZipArchiveEntry(rawName, versionMadeBy, flags, method, dosTime, crc, compressedSize, size,
+                extra, comment, internalAttributes, externalAttributes, localHeaderOffset, null);
+    }
+
+    /**
+     * Gets the entry name.
+     *
+     * @return the entry name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the raw entry name.
+     *
+     * @return the raw entry name.
+     */
+    public byte[] getRawName() {
+        return rawName;
+    }
+
+    /**
+     * Gets the version made by.
+     *
+     * @return the version made by.
+     */
+    public int getVersionMadeBy() {
+        return versionMadeBy;
+    }
+
+    /**
+     * Gets the general purpose flags.
+     *
+     * @return the general purpose flags.
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Gets the compression method.
+     *
+     * @return the compression method.
+     */
+    public int getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the MS-DOS time and date.
+     *
+     * @return the MS-DOS time and date.
+     */
+    public long getDosTime() {
+        return dosTime;
+    }
+
+    /**
+     * Gets the modification time in the local time zone. The MS-DOS time has
+     * the resolution of two seconds.
+     *
+     * @return the modification time in milliseconds or {@code -1} if the
+     * MS-DOS time and date is not valid.
+     */
+    public long getTime() {
+        try {
+            LocalDateTime time = LocalDateTime.of((int) ((dosTime >> 25) & 0x7f) + 1980, (int) ((dosTime >> 21) & 0x0f),
+                    (int) ((dosTime >> 16) & 0x1f), (int) ((dosTime >> 11) & 0x1f), (int) ((dosTime >> 5) & 0x3f), (int) ((dosTime << 1) & 0x3e));
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the CRC-32 of the uncompressed data.
+     *
+     * @return the CRC-32 of the uncompressed data.
+     */
+    public long getCrc() {
+        return crc;
+    }
+
+    /**
+     * Gets the compressed size.
+     *
+     * @return the compressed size.
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Gets the uncompressed size.
+     *
+     * @return the uncompressed size.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the central directory extra field.
+     *
+     * @return the central directory extra field.
+     */
+    public byte[] getExtra() {
+        return extra;
+    }
+
+    /**
+     * Gets the entry comment.
+     *
+     * @return the entry comment.
+     */
+    public byte[] getComment() {
+        return comment;
+    }
+
+    /**
+     * Gets the internal file attributes.
+     *
+     * @return the internal file attributes.
+     */
+    public int getInternalAttributes() {
+        return internalAttributes;
+    }
+
+    /**
+     * Gets the external file attributes.
+     *
+     * @return the external file attributes.
+     */
+    public long getExternalAttributes() {
+        return externalAttributes;
+    }
+
+    /**
+     * Gets the offset of the local file header.
+     *
+     * @return the offset of the local file header.
+     */
+    public long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    /**
+     * Gets the raw central directory file header.
+     *
+     * @return the raw central directory file header or {@code null} for the
+     * new entry.
+     */
+    public byte[] getCentralHeader() {
+        return centralHeader;
+    }
+
+    /**
+     * Returns {@code true} if the entry is a directory.
+     *
+     * @return {@code true} if the entry is a directory.
+     */
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * The ZIP archive writer. The unchanged entries are copied with the raw
+ * (compressed) data and only the new entries are compressed. The writer of the
+ * file channel transfers the unchanged entries by the operating system, the
+ * contiguous unchanged entries are transferred as one block. The ZIP64 format
+ * (archives or entries over 4 GB or 65535 or more entries) is not supported.
+ *
+ * @author Andrej_Petras
+ */
+public class ZipArchiveWriter implements Closeable {
+
+    /**
+     * The output stream.
+     */
+    private final OutputStream output;
+
+    /**
+     * The target file channel or {@code null} for the output stream.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The source archive of the pending transfer.
+     */
+    private ZipArchive pendingArchive;
+
+    /**
+     * The source position of the pending transfer.
+     */
+    private long pendingPosition;
+
+    /**
+     * The length of the pending transfer.
+     */
+    private long pendingLength;
+
+    /**
+     * The number of written bytes.
+     */
+    private long written;
+
+    /**
+     * The list of written entries.
+     */
+    private final List<ZipArchiveEntry> entries = new ArrayList<>();
+
+    /**
+     * The copy buffer.
+     */
+    private final byte[] buffer = ZipResourcePool.borrowBuffer();
+
+    /**
+     * The closed flag.
+     */
+    private boolean closed;
+
+    /**
+     * The default constructor.
+     *
+     * @param output the output stream.
+     */
+    public ZipArchiveWriter(OutputStream output) {
+        this.output = new BufferedOutputStream(output, ZipArchive.BUFFER_SIZE);
+        this.channel = null;
+    }
+
+    /**
+     * Creates the archive writer of the file channel. The unchanged entries
+     * are transferred from the source archive to the file channel without
+     * copying the data to the Java heap.
+     *
+     * @param channel the file channel.
+     */
+    public ZipArchiveWriter(FileChannel channel) {
+        this.output = new BufferedOutputStream(Channels.newOutputStream(channel), ZipArchive.BUFFER_SIZE);
+        this.channel = channel;
+    }
+
+    /**
+     * Copies the entry from the source archive without decompression. The
+     * local file header, the compressed data, the data descriptor and the
+     * central directory file header are copied as they are.
+     *
+     * @param archive the source archive.
+     * @param entry the entry.
+     * @throws IOException if the method fails.
+     */
+    public void copyEntry(ZipArchive archive, ZipArchiveEntry entry) throws IOException {
+        ZipArchiveEntry target = entry.copy(written);
+        checkSize(target);
+        if (channel != null) {
+            transfer(archive, entry.getLocalHeaderOffset(), archive.getRecordLength(entry));
+        } else {
+            try (InputStream input = archive.getRecordInputStream(entry)) {
+                int n;
+                while ((n = input.read(buffer)) != -1) {
+                    write(buffer, 0, n);
+                }
+            }
+        }
+        entries.add(target);
+    }
+
+    /**
+     * Copies the entry from the source archive without decompression to all
+     * archive writers. The raw entry data is read only once.
+     *
+     * @param archive the source archive.
+     * @param entry the entry.
+     * @param writers the list of archive writers.
+     * @throws IOException if the method fails.
+     * @see #copyEntry(org.lorislab.maven.release.zip.ZipArchive, org.lorislab.maven.release.zip.ZipArchiveEntry)
+     */
+    public static void copyEntry(ZipArchive archive, ZipArchiveEntry entry, List<ZipArchiveWriter> writers) throws IOException {
+        boolean transfer = true;
+        for (ZipArchiveWriter writer : writers) {
+            transfer = transfer && writer.channel != null;
+        }
+        if (transfer || writers.size() == 1) {
+            // the file system cache serves the transfers of the same record
+            for (ZipArchiveWriter writer : writers) {
+                writer.copyEntry(archive, entry);
+            }
+            return;
+        }
+        List<ZipArchiveEntry> targets = new ArrayList<>(writers.size());
+        for (ZipArchiveWriter writer : writers) {
+            ZipArchiveEntry target = entry.copy(writer.written);
+            writer.checkSize(target);
+            targets.add(target);
+        }
+        byte[] buffer = writers.get(0).buffer;
+        try (InputStream input = archive.getRecordInputStream(entry)) {
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                for (ZipArchiveWriter writer : writers) {
+                    writer.write(buffer, 0, n);
+                }
+            }
+        }
+        for (int i = 0; i < writers.size(); i++) {
+            writers.get(i).entries.add(targets.get(i));
+        }
+    }
+
+    /**
+     * Writes the new entry data. The entry attributes are taken from the
+     * template entry.
+     *
+     * @param template the template entry.
+     * @param data the uncompressed data.
+     * @param length the uncompressed data length.
+     * @throws IOException if the method fails.
+     */
+    public void putEntry(ZipArchiveEntry template, byte[] data, int length) throws IOException {
+        putEntry(template, ZipEntryData.create(template.getMethod(), data, length));
+    }
+
+    /**
+     * Writes the compressed entry data. The entry attributes are taken from
+     * the template entry.
+     *
+     * @param template the template entry.
+     * @param data the compressed entry data.
+     * @throws IOException if the method fails.
+     */
+    public void putEntry(ZipArchiveEntry template, ZipEntryData data) throws IOException {
+        ZipArchiveEntry target = template.copy(data.getMethod(), data.getCrc(), data.getLength(), data.getSize(), written);
+        writeLocalHeader(target);
+        write(data.getData(), 0, data.getLength());
+        entries.add(target);
+    }
+
+    /**
+     * Writes the central directory and closes the output stream.
+     *
+     * @throws IOException if the method fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long cenOffset = written;
+            for (ZipArchiveEntry entry : entries) {
+                writeCentralHeader(entry);
+            }
+            long cenSize = written - cenOffset;
+            if (entries.size() >= 0xFFFF || cenOffset >= ZipArchive.ZIP64_MAGIC || cenSize >= ZipArchive.ZIP64_MAGIC) {
+                throw new ZipException("The ZIP64 format is not supported, the archive is over 4 GB or has 65535 or more entries");
+            }
+            writeInt(ZipArchive.ENDSIG);
+            writeShort(0);
+            writeShort(0);
+            writeShort(entries.size());
+            writeShort(entries.size());
+            writeInt(cenSize);
+            writeInt(cenOffset);
+            writeShort(0);
+        } finally {
+            ZipResourcePool.release(buffer);
+            output.close();
+        }
+    }
+
+    /**
+     * Adds the region of the source archive to the pending transfer. The
+     * region which follows the pending transfer in the same archive extends
+     * the pending transfer.
+     *
+     * @param archive the source archive.
+     * @param position the region position.
+     * @param length the region length.
+     * @throws IOException if the method fails.
+     */
+    private void transfer(ZipArchive archive, long position, long length) throws IOException {
+        if (pendingArchive != archive || pendingPosition + pendingLength != position) {
+            flushTransfer();
+            pendingArchive = archive;
+            pendingPosition = position;
+        }
+        pendingLength += length;
+        written += length;
+    }
+
+    /**
+     * Transfers the pending region of the source archive to the file channel.
+     *
+     * @throws IOException if the method fails.
+     */
+    private void flushTransfer() throws IOException {
+        if (pendingArchive == null) {
+            return;
+        }
+        ZipArchive archive = pendingArchive;
+        pendingArchive = null;
+        output.flush();
+        archive.transferTo(pendingPosition, pendingLength, channel);
+        pendingLength = 0;
+    }
+
+    /**
+     * Writes the local file header.
+     *
+     * @param entry the entry.
+     * @throws IOException if the method fails.
+     */
+    private void writeLocalHeader(ZipArchiveEntry entry) throws IOException {
+        checkSize(entry);
+        writeInt(ZipArchive.LOCSIG);
+        writeShort(getVersionNeeded(entry));
+        writeShort(entry.getFlags() & ~ZipArchive.FLAG_DATA_DESCRIPTOR);
+        writeShort(entry.getMethod());
+        writeInt(entry.getDosTime());
+        writeInt(entry.getCrc());
+        writeInt(entry.getCompressedSize());
+        writeInt(entry.getSize());
+        writeShort(entry.getRawName().length);
+        writeShort(0);
+        write(entry.getRawName(), 0, entry.getRawName().length);
+    }
+
+    /**
+     * Writes the central directory file header.
+     *
+     * @param entry the entry.
+     * @throws IOException if the method fails.
+     */
+    private void writeCentralHeader(ZipArchiveEntry entry) throws IOException {
+        byte[] header = entry.getCentralHeader();
+        if (header != null) {
+            // copy the raw header with the new local file header offset
+            header = header.clone();
+            long offset = entry.getLocalHeaderOffset();
+            for (int i = 0; i < 4; i++) {
+                header[42 + i] = (byte) (offset >>> (8 * i));
+            }
+            write(header, 0, header.length);
+            return;
+        }
+        writeInt(ZipArchive.CENSIG);
+        writeShort(entry.getVersionMadeBy());
+        writeShort(getVersionNeeded(entry));
+        writeShort(entry.getFlags() & ~ZipArchive.FLAG_DATA_DESCRIPTOR);
+        writeShort(entry.getMethod());
+        writeInt(entry.getDosTime());
+        writeInt(entry.getCrc());
+        writeInt(entry.getCompressedSize());
+        writeInt(entry.getSize());
+        writeShort(entry.getRawName().length);
+        writeShort(entry.getExtra().length);
+        writeShort(entry.getComment().length);
+        writeShort(0);
+        writeShort(entry.getInternalAttributes());
+        writeInt(entry.getExternalAttributes());
+        writeInt(entry.getLocalHeaderOffset());
+        write(entry.getRawName(), 0, entry.getRawName().length);
+        write(entry.getExtra(), 0, entry.getExtra().length);
+        write(entry.getComment(), 0, entry.getComment().length);
+    }
+
+    /**
+     * Gets the version needed to extract the entry.
+     *
+     * @param entry the entry.
+     * @return the version needed to extract the entry.
+     */
+    private static int getVersionNeeded(ZipArchiveEntry entry) {
+        return entry.getMethod() == ZipArchiveEntry.DEFLATED ? 20 : 10;
+    }
+
+    /**
+     * Checks the size of the entry.
+     *
+     * @param entry the entry.
+     * @throws ZipException if the entry needs the ZIP64 format.
+     */
+    private void checkSize(ZipArchiveEntry entry) throws ZipException {
+        if (written >= ZipArchive.ZIP64_MAGIC || entry.getCompressedSize() >= ZipArchive.ZIP64_MAGIC
+                || entry.getSize() >= ZipArchive.ZIP64_MAGIC) {
+            throw new ZipException("The ZIP64 format is not supported, the archive or the entry " + entry.getName() + " is over 4 GB");
+        }
+    }
+
+    /**
+     * Writes the data.
+     *
+     * @param data the data.
+     * @param offset the data offset.
+     * @param length the data length.
+     * @throws IOException if the method fails.
+     */
+    private void write(byte[] data, int offset, int length) throws IOException {
+        flushTransfer();
+        output.write(data, offset, length);
+        written += length;
+    }
+
+    /**
+     * Writes the little endian short value.
+     *
+     * @param value the value.
+     * @throws IOException if the method fails.
+     */
+    private void writeShort(int value) throws IOException {
+        flushTransfer();
+        output.write(value & 0xFF);
+        output.write((value >>> 8) & 0xFF);
+        written += 2;
+    }
+
+    /**
+     * Writes the little endian integer value.
+     *
+     * @param value the value.
+     * @throws IOException if the method fails.
+     */
+    private void writeInt(long value) throws IOException {
+        flushTransfer();
+        output.write((int) (value & 0xFF));
+        output.write((int) ((value >>> 8) & 0xFF));
+        output.write((int) ((value >>> 16) & 0xFF));
+        output.write((int) ((value >>> 24) & 0xFF));
+        written += 4;
+    }
+}
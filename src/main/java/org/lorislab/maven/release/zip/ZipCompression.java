@@ -0,0 +1,318 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+/**
+ * The compression strategy of the rewritten entries. The first rule which
+ * matches the entry name defines the compression method and level of the
+ * entry, the entries without matching rule keep the compression method of
+ * the source entry. The strategy collects the statistics of the compression
+ * and can be used from several threads.
+ *
+ * @author Andrej_Petras
+ */
+public final class ZipCompression {
+
+    /**
+     * The maximum size of the sample of the stored data which is compressed
+     * to estimate the saved compression time.
+     */
+    private static final int SAMPLE_SIZE = 256 * 1024;
+
+    /**
+     * The list of rules.
+     */
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * The number of stored entries.
+     */
+    private final LongAdder storedEntries = new LongAdder();
+
+    /**
+     * The size of the stored entries.
+     */
+    private final LongAdder storedSize = new LongAdder();
+
+    /**
+     * The number of deflated entries.
+     */
+    private final LongAdder deflatedEntries = new LongAdder();
+
+    /**
+     * The uncompressed size of the deflated entries.
+     */
+    private final LongAdder deflatedSize = new LongAdder();
+
+    /**
+     * The compressed size of the deflated entries.
+     */
+    private final LongAdder deflatedLength = new LongAdder();
+
+    /**
+     * The compression time of the deflated entries in nanoseconds.
+     */
+    private final LongAdder deflatedTime = new LongAdder();
+
+    /**
+     * The sample flag of the stored data.
+     */
+    private final AtomicBoolean sampled = new AtomicBoolean();
+
+    /**
+     * The uncompressed size of the sample.
+     */
+    private volatile long sampleSize;
+
+    /**
+     * The compressed size of the sample.
+     */
+    private volatile long sampleLength;
+
+    /**
+     * The compression time of the sample in nanoseconds.
+     */
+    private volatile long sampleTime;
+
+    /**
+     * Adds the rule for the entry name pattern.
+     *
+     * @param pattern the regular expression of the entry name.
+     * @param method the compression method.
+     * @param level the deflate compression level.
+     * @return the compression strategy.
+     */
+    public ZipCompression addRule(String pattern, int method, int level) {
+        rules.add(new Rule(Pattern.compile(pattern), method, level));
+        return this;
+    }
+
+    /**
+     * Adds the rule for the entry name extensions.
+     *
+     * @param extensions the comma separated list of extensions.
+     * @param method the compression method.
+     * @param level the deflate compression level.
+     * @return the compression strategy.
+     */
+    public ZipCompression addExtensions(String extensions, int method, int level) {
+        StringBuilder sb = new StringBuilder();
+        for (String extension : extensions.split(",")) {
+            String tmp = extension.trim();
+            if (tmp.startsWith(".")) {
+                tmp = tmp.substring(1);
+            }
+            if (!tmp.isEmpty()) {
+                sb.append(sb.length() == 0 ? "" : "|").append(Pattern.quote(tmp));
+            }
+        }
+        if (sb.length() == 0) {
+            return this;
+        }
+        rules.add(new Rule(Pattern.compile("^.*\\.(" + sb + ")$", Pattern.CASE_INSENSITIVE), method, level));
+        return this;
+    }
+
+    /**
+     * Gets the signature of the rules. The same rules have the same
+     * signature.
+     *
+     * @return the signature of the rules.
+     */
+    public String getSignature() {
+        StringBuilder sb = new StringBuilder();
+        for (Rule rule : rules) {
+            sb.append(rule.pattern.pattern()).append(':').append(rule.pattern.flags())
+                    .append(':').append(rule.method).append(':').append(rule.level).append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compresses the new data of the entry.
+     *
+     * @param entry the source entry.
+     * @param data the new uncompressed data.
+     * @return the compressed entry data.
+     */
+    public ZipEntryData compress(ZipArchiveEntry entry, byte[] data) {
+        int method = entry.getMethod();
+        int level = Deflater.DEFAULT_COMPRESSION;
+        for (Rule rule : rules) {
+            if (rule.pattern.matcher(entry.getName()).matches()) {
+                method = rule.method;
+                level = rule.level;
+                break;
+            }
+        }
+
+        long start = System.nanoTime();
+        ZipEntryData result = ZipEntryData.create(method, level, data, data.length);
+        if (result.getMethod() == ZipArchiveEntry.STORED) {
+            storedEntries.increment();
+            storedSize.add(data.length);
+            if (data.length > 0 && sampled.compareAndSet(false, true)) {
+                sample(data);
+            }
+        } else {
+            deflatedTime.add(System.nanoTime() - start);
+            deflatedEntries.increment();
+            deflatedSize.add(data.length);
+            deflatedLength.add(result.getLength());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of stored entries.
+     *
+     * @return the number of stored entries.
+     */
+    public long getStoredEntries() {
+        return storedEntries.sum();
+    }
+
+    /**
+     * Gets the size of the stored entries.
+     *
+     * @return the size of the stored entries.
+     */
+    public long getStoredSize() {
+        return storedSize.sum();
+    }
+
+    /**
+     * Gets the number of deflated entries.
+     *
+     * @return the number of deflated entries.
+     */
+    public long getDeflatedEntries() {
+        return deflatedEntries.sum();
+    }
+
+    /**
+     * Gets the uncompressed size of the deflated entries.
+     *
+     * @return the uncompressed size of the deflated entries.
+     */
+    public long getDeflatedSize() {
+        return deflatedSize.sum();
+    }
+
+    /**
+     * Gets the compressed size of the deflated entries.
+     *
+     * @return the compressed size of the deflated entries.
+     */
+    public long getDeflatedLength() {
+        return deflatedLength.sum();
+    }
+
+    /**
+     * Gets the compression time of the deflated entries in milliseconds.
+     *
+     * @return the compression time of the deflated entries.
+     */
+    public long getDeflatedTime() {
+        return deflatedTime.sum() / 1000000L;
+    }
+
+    /**
+     * Gets the estimated compression time saved by the stored entries in
+     * milliseconds. The estimation uses the compression rate of the sample of
+     * the stored data.
+     *
+     * @return the estimated compression time saved by the stored entries.
+     */
+    public long getSavedTime() {
+        long size = sampleSize;
+        if (size == 0) {
+            return 0;
+        }
+        return (long) ((double) sampleTime / size * storedSize.sum() / 1000000L);
+    }
+
+    /**
+     * Gets the estimated size which the compression of the stored entries
+     * would save. The estimation uses the compression ratio of the sample of
+     * the stored data.
+     *
+     * @return the estimated size which the compression would save.
+     */
+    public long getSavedSize() {
+        long size = sampleSize;
+        if (size == 0) {
+            return 0;
+        }
+        return Math.max(0, (long) ((double) (size - sampleLength) / size * storedSize.sum()));
+    }
+
+    /**
+     * Compresses the sample of the stored data to estimate the compression
+     * rate and ratio of the stored entries.
+     *
+     * @param data the stored data.
+     */
+    private void sample(byte[] data) {
+        int length = Math.min(data.length, SAMPLE_SIZE);
+        long start = System.nanoTime();
+        ZipEntryData tmp = ZipEntryData.create(ZipArchiveEntry.DEFLATED, data, length);
+        sampleTime = System.nanoTime() - start;
+        sampleLength = tmp.getLength();
+        sampleSize = length;
+    }
+
+    /**
+     * The compression rule.
+     */
+    private static final class Rule {
+
+        /**
+         * The entry name pattern.
+         */
+        private final Pattern pattern;
+
+        /**
+         * The compression method.
+         */
+        private final int method;
+
+        /**
+         * The deflate compression level.
+         */
+        private final int level;
+
+        /**
+         * The default constructor.
+         *
+         * @param pattern the entry name pattern.
+         * @param method the compression method.
+         * @param level the deflate compression level.
+         */
+        Rule(Pattern pattern, int method, int level) {
+            this.pattern = pattern;
+            this.method = method;
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The compressed entry data. The data is compressed before it is written to
+ * the archive, which allows to compress the entries in parallel. The large
+ * entries are split into blocks which are compressed in parallel in the
+ * fork-join pool. Each block is compressed with the last 32 KB of the previous
+ * block as dictionary and ends with the sync flush, the concatenated blocks
+ * are one standard deflate stream.
+ *
+ * @author Andrej_Petras
+ */
+public final class ZipEntryData {
+
+    /**
+     * The block size of the parallel compression.
+     */
+    static final int BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * The deflate dictionary size.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * The compression method.
+     */
+    private final int method;
+
+    /**
+     * The CRC-32 of the uncompressed data.
+     */
+    private final long crc;
+
+    /**
+     * The uncompressed data size.
+     */
+    private final long size;
+
+    /**
+     * The compressed data.
+     */
+    private final byte[] data;
+
+    /**
+     * The compressed data length.
+     */
+    private final int length;
+
+    /**
+     * The default constructor.
+     *
+     * @param method the compression method.
+     * @param crc the CRC-32 of the uncompressed data.
+     * @param size the uncompressed data size.
+     * @param data the compressed data.
+     * @param length the compressed data length.
+     */
+    private ZipEntryData(int method, long crc, long size, byte[] data, int length) {
+        this.method = method;
+        this.crc = crc;
+        this.size = size;
+        this.data = data;
+        this.length = length;
+    }
+
+    /**
+     * Compresses the entry data.
+     *
+     * @param method the compression method.
+     * @param data the uncompressed data.
+     * @param length the uncompressed data length.
+     * @return the compressed entry data.
+     */
+    public static ZipEntryData create(int method, byte[] data, int length) {
+        return create(method, Deflater.DEFAULT_COMPRESSION, data, length);
+    }
+
+    /**
+     * Compresses the entry data with the compression level.
+     *
+     * @param method the compression method.
+     * @param level the deflate compression level. The level is ignored for
+     * the stored entry.
+     * @param data the uncompressed data.
+     * @param length the uncompressed data length.
+     * @return the compressed entry data.
+     */
+    public static ZipEntryData create(int method, int level, byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        if (method == ZipArchiveEntry.STORED) {
+            return new ZipEntryData(ZipArchiveEntry.STORED, crc.getValue(), length, data, length);
+        }
+        BlockOutputStream compressed = deflate(data, length, level);
+        return new ZipEntryData(ZipArchiveEntry.DEFLATED, crc.getValue(), length, compressed.buffer(), compressed.size());
+    }
+
+    /**
+     * Gets the compression method.
+     *
+     * @return the compression method.
+     */
+    public int getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the CRC-32 of the uncompressed data.
+     *
+     * @return the CRC-32 of the uncompressed data.
+     */
+    public long getCrc() {
+        return crc;
+    }
+
+    /**
+     * Gets the uncompressed data size.
+     *
+     * @return the uncompressed data size.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the compressed data. The array can be larger than the compressed
+     * data length.
+     *
+     * @return the compressed data.
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Gets the compressed data length.
+     *
+     * @return the compressed data length.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Compresses the data. The data is split into blocks compressed in
+     * parallel if the method is called from a fork-join pool.
+     *
+     * @param data the uncompressed data.
+     * @param length the uncompressed data length.
+     * @param level the compression level.
+     * @return the compressed data.
+     */
+    private static BlockOutputStream deflate(final byte[] data, final int length, final int level) {
+        if (length < 2 * BLOCK_SIZE || !ForkJoinTask.inForkJoinPool()) {
+            return deflate(data, 0, length, length, level);
+        }
+        List<ForkJoinTask<BlockOutputStream>> tasks = new ArrayList<>();
+        for (int start = 0; start < length; start += BLOCK_SIZE) {
+            final int offset = start;
+            final int end = Math.min(start + BLOCK_SIZE, length);
+            tasks.add(ForkJoinTask.adapt(new Callable<BlockOutputStream>() {
+                @Override
+                public BlockOutputStream call() {
+                    return deflate(data, offset, end, length, level);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        BlockOutputStream result = new BlockOutputStream(length / 2);
+        for (ForkJoinTask<BlockOutputStream> task : tasks) {
+            BlockOutputStream block = task.join();
+            result.write(block.buffer(), 0, block.size());
+        }
+        return result;
+    }
+
+    /**
+     * Compresses the block of the data. The block is compressed with the
+     * previous 32 KB of the data as dictionary. The last block finishes the
+     * deflate stream, all other blocks end with the sync flush on the byte
+     * boundary.
+     *
+     * @param data the uncompressed data.
+     * @param start the block start.
+     * @param end the block end.
+     * @param length the uncompressed data length.
+     * @param level the compression level.
+     * @return the compressed block.
+     */
+    private static BlockOutputStream deflate(byte[] data, int start, int end, int length, int level) {
+        BlockOutputStream result = new BlockOutputStream(Math.max((end - start) / 2, 32));
+        Deflater deflater = ZipResourcePool.borrowDeflater(level);
+        byte[] buffer = ZipResourcePool.borrowBuffer();
+        try {
+            if (start > 0) {
+                // the offset of the dictionary is ignored by the JDK 11 deflater
+                deflater.setDictionary(Arrays.copyOfRange(data, Math.max(0, start - DICTIONARY_SIZE), start));
+            }
+            deflater.setInput(data, start, end - start);
+            if (end == length) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer, 0, buffer.length);
+                    result.write(buffer, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    result.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+        } finally {
+            ZipResourcePool.release(buffer);
+            ZipResourcePool.release(level, deflater);
+        }
+        return result;
+    }
+
+    /**
+     * The output stream of the compressed data with the access to the buffer.
+     */
+    private static final class BlockOutputStream extends ByteArrayOutputStream {
+
+        /**
+         * The default constructor.
+         *
+         * @param size the initial size.
+         */
+        BlockOutputStream(int size) {
+            super(size);
+        }
+
+        /**
+         * Gets the buffer without copying.
+         *
+         * @return the buffer.
+         */
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+/**
+ * The ZIP entry copy callback method for several target archives.
+ *
+ * @author Andrej_Petras
+ */
+public interface ZipFanOutCallback {
+
+    /**
+     * Processing the entry of the source archive.
+     *
+     * @param archive the source archive.
+     * @param entry the entry.
+     * @return the array of the new uncompressed entry data with one item for
+     * each target archive or {@code null} if the entry should be copied
+     * without change to all target archives. The {@code null} item copies the
+     * entry without change to the corresponding target archive.
+     * @throws Exception if the method fails.
+     */
+    public byte[][] execute(ZipArchive archive, ZipArchiveEntry entry) throws Exception;
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The pool of the deflaters, inflaters and I/O buffers of the archive
+ * pipeline. The pool is shared by all archives and worker threads. The number
+ * of pooled items is bounded, the items which do not fit into the pool are
+ * released immediately so the native memory does not depend on the
+ * finalization.
+ *
+ * @author Andrej_Petras
+ */
+final class ZipResourcePool {
+
+    /**
+     * The maximum number of pooled items of each type.
+     */
+    private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The deflater pools by the compression level.
+     */
+    private static final ConcurrentMap<Integer, Pool<Deflater>> DEFLATERS = new ConcurrentHashMap<>();
+
+    /**
+     * The inflater pool.
+     */
+    private static final Pool<Inflater> INFLATERS = new Pool<>();
+
+    /**
+     * The heap buffer pool.
+     */
+    private static final Pool<byte[]> BUFFERS = new Pool<>();
+
+    /**
+     * The direct buffer pool.
+     */
+    private static final Pool<ByteBuffer> DIRECT_BUFFERS = new Pool<>();
+
+    /**
+     * The default constructor.
+     */
+    private ZipResourcePool() {
+        // empty constructor
+    }
+
+    /**
+     * Borrows the deflater without the ZLIB header from the pool.
+     *
+     * @param level the compression level.
+     * @return the deflater.
+     */
+    static Deflater borrowDeflater(int level) {
+        Deflater result = getDeflaters(level).poll();
+        if (result == null) {
+            result = new Deflater(level, true);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the deflater to the pool. The deflater keeps its compression
+     * level, so the pooled deflater produces the same output as the new one.
+     *
+     * @param level the compression level.
+     * @param deflater the deflater.
+     */
+    static void release(int level, Deflater deflater) {
+        deflater.reset();
+        if (!getDeflaters(level).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Borrows the inflater without the ZLIB header from the pool.
+     *
+     * @return the inflater.
+     */
+    static Inflater borrowInflater() {
+        Inflater result = INFLATERS.poll();
+        if (result == null) {
+            result = new Inflater(true);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the inflater to the pool.
+     *
+     * @param inflater the inflater.
+     */
+    static void release(Inflater inflater) {
+        inflater.reset();
+        if (!INFLATERS.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Borrows the heap buffer of the size {@link ZipArchive#BUFFER_SIZE}.
+     *
+     * @return the heap buffer.
+     */
+    static byte[] borrowBuffer() {
+        byte[] result = BUFFERS.poll();
+        if (result == null) {
+            result = new byte[ZipArchive.BUFFER_SIZE];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the heap buffer to the pool.
+     *
+     * @param buffer the heap buffer.
+     */
+    static void release(byte[] buffer) {
+        BUFFERS.offer(buffer);
+    }
+
+    /**
+     * Borrows the direct buffer of the capacity
+     * {@link ZipArchive#BUFFER_SIZE}. The file channel reads to the direct
+     * buffer without the temporary native copy of the size of the read.
+     *
+     * @return the cleared direct buffer.
+     */
+    static ByteBuffer borrowDirectBuffer() {
+        ByteBuffer result = DIRECT_BUFFERS.poll();
+        if (result == null) {
+            result = ByteBuffer.allocateDirect(ZipArchive.BUFFER_SIZE);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the direct buffer to the pool.
+     *
+     * @param buffer the direct buffer.
+     */
+    static void release(ByteBuffer buffer) {
+        buffer.clear();
+        DIRECT_BUFFERS.offer(buffer);
+    }
+
+    /**
+     * Gets the deflater pool of the compression level.
+     *
+     * @param level the compression level.
+     * @return the corresponding deflater pool.
+     */
+    private static Pool<Deflater> getDeflaters(int level) {
+        Pool<Deflater> result = DEFLATERS.get(level);
+        if (result == null) {
+            result = new Pool<>();
+            Pool<Deflater> tmp = DEFLATERS.putIfAbsent(level, result);
+            if (tmp != null) {
+                result = tmp;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The bounded lock-free pool.
+     *
+     * @param <T> the pooled type.
+     */
+    private static final class Pool<T> {
+
+        /**
+         * The pooled items.
+         */
+        private final Queue<T> items = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The number of pooled items.
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * Gets the pooled item.
+         *
+         * @return the pooled item or {@code null} if the pool is empty.
+         */
+        T poll() {
+            T result = items.poll();
+            if (result != null) {
+                size.decrementAndGet();
+            }
+            return result;
+        }
+
+        /**
+         * Adds the item to the pool.
+         *
+         * @param item the item.
+         * @return {@code false} if the pool is full.
+         */
+        boolean offer(T item) {
+            if (size.incrementAndGet() > POOL_SIZE) {
+                size.decrementAndGet();
+                return false;
+            }
+            items.offer(item);
+            return true;
+        }
+    }
+}
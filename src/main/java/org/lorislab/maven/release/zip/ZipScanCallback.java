@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.io.InputStream;
+
+/**
+ * The ZIP stream scan callback method.
+ *
+ * @author Andrej_Petras
+ */
+public interface ZipScanCallback {
+
+    /**
+     * Returns {@code true} if the scan needs the uncompressed data of the
+     * entry.
+     *
+     * @param name the entry name.
+     * @return {@code true} if the scan needs the uncompressed data of the
+     * entry.
+     */
+    public boolean accept(String name);
+
+    /**
+     * Processing the entry of the ZIP stream.
+     *
+     * @param name the entry name.
+     * @param data the uncompressed entry data or {@code null} if the entry
+     * was not accepted.
+     * @return {@code true} to stop the scan.
+     * @throws Exception if the method fails.
+     */
+    public boolean execute(String name, InputStream data) throws Exception;
+}
@@ -13,22 +13,29 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.lorislab.maven.release.util;
+package org.lorislab.maven.release.zip;
 
-import java.nio.file.Path;
+import java.util.zip.ZipException;
 
 /**
- * The ZIP processing callback method.
+ * The ZIP stream exception. The local file header of the entry can not be
+ * read as a stream, the archive has to be read by the central directory.
  *
  * @author Andrej_Petras
  */
-public interface ProcessingCallback {
+public class ZipStreamException extends ZipException {
 
     /**
-     * Processing the file inside the ZIP file.
+     * The UID for this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default constructor.
      *
-     * @param path the file inside the ZIP file.
-     * @throws Exception if the method fails.
+     * @param message the error message.
      */
-    public void execute(Path path) throws Exception;
+    public ZipStreamException(String message) {
+        super(message);
+    }
 }
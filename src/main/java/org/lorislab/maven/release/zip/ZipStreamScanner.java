@@ -0,0 +1,428 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The ZIP stream scanner. The scanner reads the local file headers of the ZIP
+ * stream without buffering the archive. The data of the entries which are not
+ * accepted by the callback are skipped without decompression whenever the
+ * local file header contains the compressed size. The scanner fails with
+ * the {@link ZipStreamException} if the entry can be read only by the central
+ * directory of the archive.
+ *
+ * @author Andrej_Petras
+ */
+public final class ZipStreamScanner {
+
+    /**
+     * The default constructor.
+     */
+    private ZipStreamScanner() {
+        // empty constructor
+    }
+
+    /**
+     * Scans the ZIP stream.
+     *
+     * @param input the ZIP stream.
+     * @param callback the call-back method.
+     * @return {@code true} if the scan was stopped by the callback.
+     * @throws ZipStreamException if the stream has to be read by the central
+     * directory.
+     * @throws Exception if the method fails.
+     */
+    public static boolean scan(InputStream input, ZipScanCallback callback) throws Exception {
+        PushbackInputStream in = new PushbackInputStream(input, ZipArchive.BUFFER_SIZE);
+        byte[] tmp = new byte[ZipArchive.LOCHDR];
+        ByteBuffer header = ByteBuffer.wrap(tmp).order(ByteOrder.LITTLE_ENDIAN);
+        while (true) {
+
+            // the end of stream or the central directory
+            if (!readFully(in, tmp, 4) || header.getInt(0) != ZipArchive.LOCSIG) {
+                return false;
+            }
+            if (!readFully(in, tmp, 4, ZipArchive.LOCHDR - 4)) {
+                throw new EOFException("Unexpected end of the ZIP stream");
+            }
+
+            int flags = ZipArchive.u16(header, 6);
+            int method = ZipArchive.u16(header, 8);
+            long compressedSize = ZipArchive.u32(header, 18);
+            byte[] rawName = new byte[ZipArchive.u16(header, 26)];
+            if (!readFully(in, rawName, rawName.length)) {
+                throw new EOFException("Unexpected end of the ZIP stream");
+            }
+            skipFully(in, ZipArchive.u16(header, 28));
+            String name = new String(rawName, StandardCharsets.UTF_8);
+
+            // the end of the stored entry with the data descriptor and the
+            // sizes of the ZIP64 entry are known only by the central directory
+            boolean descriptor = (flags & ZipArchive.FLAG_DATA_DESCRIPTOR) != 0;
+            if (descriptor && method != ZipArchiveEntry.DEFLATED) {
+                throw new ZipStreamException("Not supported data descriptor of the stored entry " + name);
+            }
+            if (compressedSize == ZipArchive.ZIP64_MAGIC || ZipArchive.u32(header, 22) == ZipArchive.ZIP64_MAGIC) {
+                throw new ZipStreamException("Not supported ZIP64 local file header of the entry " + name);
+            }
+            if (method != ZipArchiveEntry.STORED && method != ZipArchiveEntry.DEFLATED) {
+                throw new ZipStreamException("Not supported compression method " + method + " of the entry " + name);
+            }
+
+            // the raw data of the entry
+            InputStream raw = descriptor ? in : new BoundedInputStream(in, compressedSize);
+            boolean stop;
+            if (callback.accept(name)) {
+                InflaterStream inflater = null;
+                InputStream data = raw;
+                if (method == ZipArchiveEntry.DEFLATED) {
+                    inflater = new InflaterStream(raw, descriptor ? in : null);
+                    data = inflater;
+                }
+                try {
+                    stop = callback.execute(name, data);
+                    if (!stop && descriptor) {
+                        inflater.drain();
+                    }
+                } finally {
+                    if (inflater != null) {
+                        inflater.end();
+                    }
+                }
+            } else {
+                stop = callback.execute(name, null);
+                if (!stop && descriptor) {
+                    InflaterStream inflater = new InflaterStream(in, in);
+                    try {
+                        inflater.drain();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            }
+
+            if (stop) {
+                return true;
+            }
+
+            if (descriptor) {
+                // the data descriptor signature is optional
+                if (!readFully(in, tmp, 4)) {
+                    throw new EOFException("Unexpected end of the ZIP stream");
+                }
+                skipFully(in, header.getInt(0) == ZipArchive.EXTSIG ? 12 : 8);
+            } else {
+                skipFully(raw, Long.MAX_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Reads the data to the beginning of the buffer.
+     *
+     * @param in the input stream.
+     * @param buffer the buffer.
+     * @param length the data length.
+     * @return {@code false} if the end of the stream is reached before the
+     * first byte.
+     * @throws IOException if the method fails.
+     */
+    private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        return readFully(in, buffer, 0, length);
+    }
+
+    /**
+     * Reads the data to the buffer.
+     *
+     * @param in the input stream.
+     * @param buffer the buffer.
+     * @param offset the buffer offset.
+     * @param length the data length.
+     * @return {@code false} if the end of the stream is reached before the
+     * first byte.
+     * @throws IOException if the method fails.
+     */
+    private static boolean readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int count = 0;
+        while (count < length) {
+            int n = in.read(buffer, offset + count, length - count);
+            if (n < 0) {
+                if (count == 0) {
+                    return false;
+                }
+                throw new EOFException("Unexpected end of the ZIP stream");
+            }
+            count += n;
+        }
+        return true;
+    }
+
+    /**
+     * Skips the data of the input stream.
+     *
+     * @param in the input stream.
+     * @param length the number of bytes to skip or {@link Long#MAX_VALUE} to
+     * skip the rest of the stream.
+     * @throws IOException if the method fails.
+     */
+    private static void skipFully(InputStream in, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long n = in.skip(remaining);
+            if (n <= 0) {
+                if (in.read() < 0) {
+                    if (length == Long.MAX_VALUE) {
+                        return;
+                    }
+                    throw new EOFException("Unexpected end of the ZIP stream");
+                }
+                n = 1;
+            }
+            remaining -= n;
+        }
+    }
+
+    /**
+     * The bounded input stream. The stream does not close the parent stream.
+     */
+    private static class BoundedInputStream extends InputStream {
+
+        /**
+         * The parent input stream.
+         */
+        private final InputStream in;
+
+        /**
+         * The remaining bytes.
+         */
+        private long remaining;
+
+        /**
+         * The default constructor.
+         *
+         * @param in the parent input stream.
+         * @param length the stream length.
+         */
+        BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int result = in.read();
+            if (result < 0) {
+                throw new EOFException("Unexpected end of the ZIP stream");
+            }
+            remaining--;
+            return result;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Unexpected end of the ZIP stream");
+            }
+            remaining -= n;
+            return n;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            long result = in.skip(Math.min(n, remaining));
+            remaining -= result;
+            return result;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void close() {
+            // the parent stream stays open
+        }
+    }
+
+    /**
+     * The inflater stream of the entry data. The stream pushes back the bytes
+     * read after the end of the compressed data.
+     */
+    private static class InflaterStream extends InputStream {
+
+        /**
+         * The raw data input stream.
+         */
+        private final InputStream in;
+
+        /**
+         * The push back stream or {@code null} if the raw data stream is
+         * bounded.
+         */
+        private final PushbackInputStream pushback;
+
+        /**
+         * The inflater.
+         */
+        private final Inflater inflater = ZipResourcePool.borrowInflater();
+
+        /**
+         * The input buffer.
+         */
+        private final byte[] buffer = ZipResourcePool.borrowBuffer();
+
+        /**
+         * The length of the last input.
+         */
+        private int length;
+
+        /**
+         * The end of data flag.
+         */
+        private boolean finished;
+
+        /**
+         * The end of raw data flag.
+         */
+        private boolean eof;
+
+        /**
+         * The default constructor.
+         *
+         * @param in the raw data input stream.
+         * @param pushback the push back stream or {@code null} if the raw data
+         * stream is bounded.
+         */
+        InflaterStream(InputStream in, PushbackInputStream pushback) {
+            this.in = in;
+            this.pushback = pushback;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int read() throws IOException {
+            byte[] tmp = new byte[1];
+            int n = read(tmp, 0, 1);
+            return n < 0 ? -1 : tmp[0] & 0xFF;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                while (true) {
+                    int n = inflater.inflate(b, off, len);
+                    if (n > 0) {
+                        return n;
+                    }
+                    if (inflater.finished()) {
+                        finished = true;
+                        int rest = inflater.getRemaining();
+                        if (pushback != null && rest > 0) {
+                            pushback.unread(buffer, length - rest, rest);
+                        }
+                        return -1;
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new ZipException("Not supported inflater dictionary");
+                    }
+                    if (inflater.needsInput()) {
+                        if (eof) {
+                            throw new EOFException("Unexpected end of ZLIB input stream");
+                        }
+                        length = in.read(buffer, 0, buffer.length);
+                        if (length < 0) {
+                            eof = true;
+                            // the inflater with nowrap option needs the dummy byte
+                            buffer[0] = 0;
+                            length = 1;
+                        }
+                        inflater.setInput(buffer, 0, length);
+                    }
+                }
+            } catch (DataFormatException ex) {
+                throw new ZipException(ex.getMessage());
+            }
+        }
+
+        /**
+         * Reads the rest of the entry data.
+         *
+         * @throws IOException if the method fails.
+         */
+        void drain() throws IOException {
+            byte[] tmp = ZipResourcePool.borrowBuffer();
+            try {
+                while (read(tmp, 0, tmp.length) >= 0) {
+                    // skip the data
+                }
+            } finally {
+                ZipResourcePool.release(tmp);
+            }
+        }
+
+        /**
+         * Returns the inflater and the input buffer to the pool.
+         */
+        void end() {
+            ZipResourcePool.release(inflater);
+            ZipResourcePool.release(buffer);
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void close() {
+            // the parent stream stays open
+        }
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lorislab.maven.release.model.CompressionRule;
+import org.lorislab.maven.release.zip.ZipArchive;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The round-trip tests of the archive update with the nested modules. The
+ * target archives are checked with the {@link java.util.zip} reader.
+ *
+ * @author Andrej_Petras
+ */
+public class AbstractPersistenceMojoTest {
+
+    /**
+     * The persistence XML file.
+     */
+    private static final String PERSISTENCE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<persistence version=\"2.1\" xmlns=\"http://xmlns.jcp.org/xml/ns/persistence\">\n"
+            + "    <persistence-unit name=\"test\">\n"
+            + "        <properties>\n"
+            + "            <property name=\"hibernate.dialect\" value=\"old\"/>\n"
+            + "            <property name=\"keep\" value=\"keep\"/>\n"
+            + "        </properties>\n"
+            + "    </persistence-unit>\n"
+            + "</persistence>\n";
+
+    /**
+     * The temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests the update of the nested modules for several classifiers with
+     * the sequential and the parallel update.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testUpdateArchive() throws Exception {
+        byte[] inner = createArchive(entry("META-INF/persistence.xml", PERSISTENCE_XML), entry("a/Inner.class", "inner"));
+        byte[] vendor = createArchive(entry("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n"), entry("b/Vendor.class", "vendor"));
+        byte[] ejb = createArchive(entry("META-INF/persistence.xml", PERSISTENCE_XML), entry("c/Ejb.class", "ejb"));
+        byte[] web = createArchive(entry("WEB-INF/classes/META-INF/persistence.xml", PERSISTENCE_XML),
+                entry("WEB-INF/lib/inner.jar", inner), entry("index.html", "<html/>"));
+        Path source = folder.newFile("app.ear").toPath();
+        Files.write(source, createArchive(entry("META-INF/application.xml", "<application/>"), entry("ejb.jar", ejb),
+                entry("web.war", web), entry("lib/inner.jar", inner), entry("lib/vendor.jar", vendor)));
+
+        List<Map<String, String>> values = Arrays.asList(values("dev"), values("prod"));
+        byte[][] sequential = null;
+        for (int parallelism : new int[]{1, 4}) {
+            Path dir = folder.newFolder().toPath();
+            List<Path> targets = Arrays.asList(dir.resolve("app-dev.ear"), dir.resolve("app-prod.ear"));
+            Set<String> changes = new TestMojo(parallelism).updateArchive(source, null, targets, null, "ear", values);
+
+            assertEquals(4, changes.size());
+            assertTrue(changes.contains("web.war!/WEB-INF/lib/inner.jar!/META-INF/persistence.xml"));
+            assertTrue(changes.contains("web.war!/WEB-INF/classes/META-INF/persistence.xml"));
+            assertTrue(changes.contains("lib/inner.jar!/META-INF/persistence.xml"));
+            assertTrue(changes.contains("ejb.jar!/META-INF/persistence.xml"));
+
+            byte[][] result = new byte[targets.size()][];
+            for (int i = 0; i < targets.size(); i++) {
+                String value = values.get(i).get("hibernate.dialect");
+                Map<String, byte[]> ear = readArchive(Files.readAllBytes(targets.get(i)));
+                assertEquals(Arrays.asList("META-INF/application.xml", "ejb.jar", "web.war", "lib/inner.jar", "lib/vendor.jar"),
+                        Arrays.asList(ear.keySet().toArray()));
+                assertArrayEquals(vendor, ear.get("lib/vendor.jar"));
+                assertArrayEquals(ear.get("lib/inner.jar"), readArchive(ear.get("web.war")).get("WEB-INF/lib/inner.jar"));
+                assertPersistenceXml(readArchive(ear.get("ejb.jar")).get("META-INF/persistence.xml"), value);
+                assertPersistenceXml(readArchive(ear.get("lib/inner.jar")).get("META-INF/persistence.xml"), value);
+                Map<String, byte[]> war = readArchive(ear.get("web.war"));
+                assertPersistenceXml(war.get("WEB-INF/classes/META-INF/persistence.xml"), value);
+                assertPersistenceXml(readArchive(war.get("WEB-INF/lib/inner.jar")).get("META-INF/persistence.xml"), value);
+                result[i] = Files.readAllBytes(targets.get(i));
+            }
+            if (sequential == null) {
+                sequential = result;
+            } else {
+                // the parallel update keeps the order and the data of the sequential update
+                for (int i = 0; i < result.length; i++) {
+                    assertArrayEquals(sequential[i], result[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the identical nested modules of one archive, which are updated
+     * only once.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testUpdateArchiveDuplicates() throws Exception {
+        byte[] inner = createArchive(entry("META-INF/persistence.xml", PERSISTENCE_XML), entry("a/Inner.class", "inner"));
+        byte[] other = createArchive(entry("META-INF/persistence.xml", PERSISTENCE_XML), entry("a/Other.class", "other"));
+        Path source = folder.newFile("app.ear").toPath();
+        Files.write(source, createArchive(entry("lib/a.jar", inner), entry("lib/b.jar", other), entry("lib/c.jar", inner),
+                entry("ejb.jar", inner)));
+
+        for (int parallelism : new int[]{1, 4}) {
+            TestMojo mojo = new TestMojo(parallelism);
+            PersistenceReleaseMojoTest.TestLog log = new PersistenceReleaseMojoTest.TestLog();
+            mojo.setLog(log);
+            Path dir = folder.newFolder().toPath();
+            List<Path> targets = Arrays.asList(dir.resolve("app-dev.ear"), dir.resolve("app-prod.ear"));
+            Set<String> changes = mojo.updateArchive(source, null, targets, null, "ear", Arrays.asList(values("dev"), values("prod")));
+
+            assertEquals(4, changes.size());
+            // the parallel update reuses the update of any identical module
+            int reused = 0;
+            for (String message : log.messages) {
+                if (message.startsWith("Reused the update of the identical file ")) {
+                    reused++;
+                }
+            }
+            assertEquals(log.messages.toString(), 2, reused);
+            assertTrue(log.messages.toString(), log.contains("Collapsed 2 duplicate nested modules"));
+            for (int i = 0; i < targets.size(); i++) {
+                Map<String, byte[]> ear = readArchive(Files.readAllBytes(targets.get(i)));
+                assertArrayEquals(ear.get("lib/a.jar"), ear.get("lib/c.jar"));
+                assertArrayEquals(ear.get("lib/a.jar"), ear.get("ejb.jar"));
+                for (String name : ear.keySet()) {
+                    assertPersistenceXml(readArchive(ear.get(name)).get("META-INF/persistence.xml"), i == 0 ? "dev" : "prod");
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the update of the nested modules with the cache. The second update
+     * reads the updated modules from the cache.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testUpdateArchiveCache() throws Exception {
+        byte[] inner = createArchive(entry("META-INF/persistence.xml", PERSISTENCE_XML), entry("a/Inner.class", "inner"));
+        Path source = folder.newFile("app.ear").toPath();
+        Files.write(source, createArchive(entry("lib/inner.jar", inner)));
+        Path cacheDir = folder.newFolder("cache").toPath();
+
+        byte[] first = null;
+        for (String hits : new String[]{"0 hits, 1 misses", "1 hits, 0 misses"}) {
+            TestMojo mojo = new TestMojo(1);
+            PersistenceReleaseMojoTest.TestLog log = new PersistenceReleaseMojoTest.TestLog();
+            mojo.setLog(log);
+            PersistenceReleaseMojoTest.setField(mojo, "cacheDirectory", cacheDir.toString());
+            PersistenceReleaseMojoTest.setField(mojo, "cacheSize", 1L);
+            Path target = folder.newFolder().toPath().resolve("app-dev.ear");
+            Set<String> changes = mojo.updateArchive(source, null, Collections.singletonList(target), null, "ear",
+                    Collections.singletonList(values("dev")));
+
+            assertEquals(Collections.singleton("lib/inner.jar!/META-INF/persistence.xml"), changes);
+            assertTrue(log.messages.toString(), log.contains("Module cache " + cacheDir + ": " + hits));
+            byte[] module = readArchive(Files.readAllBytes(target)).get("lib/inner.jar");
+            assertPersistenceXml(readArchive(module).get("META-INF/persistence.xml"), "dev");
+            if (first == null) {
+                first = module;
+            } else {
+                assertArrayEquals(first, module);
+            }
+        }
+    }
+
+    /**
+     * Tests the archive without a persistence XML file.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testContainsPersistenceXml() throws Exception {
+        byte[] vendor = createArchive(entry("b/Vendor.class", "vendor"));
+        byte[] inner = createArchive(entry("META-INF/persistence.xml", PERSISTENCE_XML));
+        Path none = folder.newFile("none.ear").toPath();
+        Files.write(none, createArchive(entry("lib/vendor.jar", vendor)));
+        Path nested = folder.newFile("nested.ear").toPath();
+        Files.write(nested, createArchive(entry("lib/vendor.jar", vendor), entry("lib/inner.jar", inner)));
+
+        assertFalse(AbstractPersistenceMojo.containsPersistenceXml(none, "ear"));
+        assertTrue(AbstractPersistenceMojo.containsPersistenceXml(nested, "ear"));
+    }
+
+    /**
+     * Tests the compression rules with the valid and the not valid
+     * compression levels and patterns.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testCreateCompression() throws Exception {
+        TestMojo mojo = new TestMojo(1);
+        String signature = mojo.createCompression().getSignature();
+        PersistenceReleaseMojoTest.setField(mojo, "compressionRules", Arrays.asList(new CompressionRule("png", null, "stored"),
+                new CompressionRule(null, ".*\\.xml", "9"), new CompressionRule("txt", null, " default "), new CompressionRule("bin", null, null)));
+        assertFalse(signature.equals(mojo.createCompression().getSignature()));
+
+        for (String level : new String[]{"10", "-2", "fast"}) {
+            PersistenceReleaseMojoTest.setField(mojo, "compressionRules", Collections.singletonList(new CompressionRule("txt", null, level)));
+            try {
+                mojo.createCompression();
+                fail("The compression level " + level + " is not valid");
+            } catch (MojoExecutionException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().contains("compressionRules"));
+            }
+        }
+
+        PersistenceReleaseMojoTest.setField(mojo, "compressionRules", Collections.singletonList(new CompressionRule(null, "[a-", "9")));
+        try {
+            mojo.createCompression();
+            fail("The pattern is not valid");
+        } catch (MojoExecutionException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("compressionRules"));
+        }
+    }
+
+    /**
+     * Tests the nested module with the stored entries with the data
+     * descriptor, which is read by the central directory.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testStoredDataDescriptor() throws Exception {
+        byte[] inner = createStoredArchive(entry("a/Inner.class", "inner"), entry("META-INF/persistence.xml", PERSISTENCE_XML));
+        Path source = folder.newFile("app.ear").toPath();
+        Files.write(source, createArchive(entry("lib/inner.jar", inner)));
+
+        assertTrue(AbstractPersistenceMojo.containsPersistenceXml(source, "ear"));
+
+        Path target = folder.getRoot().toPath().resolve("app-dev.ear");
+        Set<String> changes = new TestMojo(1).updateArchive(source, null, Collections.singletonList(target), null, "ear",
+                Collections.singletonList(values("dev")));
+        assertEquals(Collections.singleton("lib/inner.jar!/META-INF/persistence.xml"), changes);
+        // the stored entry with the data descriptor is read by the central directory
+        Path module = folder.newFile().toPath();
+        Files.write(module, readArchive(Files.readAllBytes(target)).get("lib/inner.jar"));
+        try (ZipFile zip = new ZipFile(module.toFile())) {
+            assertArrayEquals(text("inner"), read(zip.getInputStream(zip.getEntry("a/Inner.class"))));
+            assertPersistenceXml(read(zip.getInputStream(zip.getEntry("META-INF/persistence.xml"))), "dev");
+        }
+    }
+
+    /**
+     * Tests the check of the exploded files by the size, the modification
+     * time and the CRC of the archive entries.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testExplodedDirectory() throws Exception {
+        Path dir = folder.newFolder("app").toPath();
+        Path source = folder.getRoot().toPath().resolve("app.ear");
+        Files.write(source, createArchive(entry("same.txt", "same"), entry("time.txt", "time"), entry("crc.txt", "crc1"),
+                entry("size.txt", "size"), entry("missing.txt", "missing")));
+        try (ZipArchive archive = new ZipArchive(source)) {
+            Files.write(dir.resolve("same.txt"), text("same"));
+            Files.write(dir.resolve("time.txt"), text("time"));
+            Files.write(dir.resolve("crc.txt"), text("crc2"));
+            Files.write(dir.resolve("size.txt"), text("size changed"));
+            for (String name : Arrays.asList("same.txt", "crc.txt", "size.txt")) {
+                Files.setLastModifiedTime(dir.resolve(name), FileTime.fromMillis(archive.getEntry(name).getTime()));
+            }
+            Files.setLastModifiedTime(dir.resolve("time.txt"), FileTime.fromMillis(archive.getEntry("time.txt").getTime() - 60000));
+            Files.setLastModifiedTime(dir, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() - 60000));
+
+            AbstractPersistenceMojo.ExplodedDirectory exploded = AbstractPersistenceMojo.getExplodedDirectory(dir, source);
+            assertNotNull(exploded);
+            // the matching modification time is trusted without the CRC
+            assertEquals(dir.resolve("same.txt"), exploded.getFile(archive.getEntry("same.txt")));
+            assertEquals(dir.resolve("crc.txt"), exploded.getFile(archive.getEntry("crc.txt")));
+            // the other modification time is checked by the CRC
+            assertEquals(dir.resolve("time.txt"), exploded.getFile(archive.getEntry("time.txt")));
+            assertNull(exploded.getFile(archive.getEntry("size.txt")));
+            assertNull(exploded.getFile(archive.getEntry("missing.txt")));
+
+            Files.setLastModifiedTime(dir.resolve("crc.txt"), FileTime.fromMillis(archive.getEntry("crc.txt").getTime() - 60000));
+            assertNull(AbstractPersistenceMojo.getExplodedDirectory(dir, source).getFile(archive.getEntry("crc.txt")));
+        }
+        // the directory modified after the archive is not used
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 60000));
+        assertNull(AbstractPersistenceMojo.getExplodedDirectory(dir, source));
+    }
+
+    /**
+     * Tests the update of the archive with the nested modules read from the
+     * exploded directory.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testUpdateArchiveExploded() throws Exception {
+        byte[] ejb = createArchive(entry("META-INF/persistence.xml", PERSISTENCE_XML), entry("c/Ejb.class", "ejb"));
+        byte[] vendor = createArchive(entry("b/Vendor.class", "vendor"));
+        Path source = folder.getRoot().toPath().resolve("app.ear");
+        Files.write(source, createArchive(entry("ejb.jar", ejb), entry("lib/vendor.jar", vendor)));
+        Path dir = folder.newFolder("app").toPath();
+        Files.createDirectories(dir.resolve("lib"));
+        Files.write(dir.resolve("ejb.jar"), ejb);
+        Files.write(dir.resolve("lib/vendor.jar"), vendor);
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() - 60000));
+
+        Path target = folder.getRoot().toPath().resolve("app-dev.ear");
+        Set<String> changes = new TestMojo(1).updateArchive(source, AbstractPersistenceMojo.getExplodedDirectory(dir, source),
+                Collections.singletonList(target), null, "ear", Collections.singletonList(values("dev")));
+
+        assertEquals(Collections.singleton("ejb.jar!/META-INF/persistence.xml"), changes);
+        Map<String, byte[]> ear = readArchive(Files.readAllBytes(target));
+        assertArrayEquals(vendor, ear.get("lib/vendor.jar"));
+        assertPersistenceXml(readArchive(ear.get("ejb.jar")).get("META-INF/persistence.xml"), "dev");
+    }
+
+    /**
+     * Checks the updated persistence XML file.
+     *
+     * @param data the persistence XML file.
+     * @param value the expected value of the updated property.
+     */
+    private static void assertPersistenceXml(byte[] data, String value) {
+        assertNotNull(data);
+        String xml = new String(data, StandardCharsets.UTF_8);
+        assertTrue(xml, xml.contains("<property name=\"hibernate.dialect\" value=\"" + value + "\"/>"));
+        assertTrue(xml, xml.contains("<property name=\"keep\" value=\"keep\"/>"));
+        assertTrue(xml, xml.contains("<property name=\"added\" value=\"" + value + "\"/>"));
+        assertTrue(xml, xml.endsWith("</persistence>\n"));
+    }
+
+    /**
+     * Creates the properties values of the classifier.
+     *
+     * @param classifier the classifier.
+     * @return the properties values.
+     */
+    private static Map<String, String> values(String classifier) {
+        Map<String, String> result = new HashMap<>();
+        result.put("hibernate.dialect", classifier);
+        result.put("added", classifier);
+        return result;
+    }
+
+    /**
+     * Creates the archive entry.
+     *
+     * @param name the entry name.
+     * @param data the entry text.
+     * @return the archive entry.
+     */
+    private static Entry<String, byte[]> entry(String name, String data) {
+        return entry(name, text(data));
+    }
+
+    /**
+     * Gets the UTF-8 data of the text.
+     *
+     * @param text the text.
+     * @return the UTF-8 data.
+     */
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the archive entry.
+     *
+     * @param name the entry name.
+     * @param data the entry data.
+     * @return the archive entry.
+     */
+    private static Entry<String, byte[]> entry(String name, byte[] data) {
+        return Collections.singletonMap(name, data).entrySet().iterator().next();
+    }
+
+    /**
+     * Creates the archive with the {@link java.util.zip} writer.
+     *
+     * @param entries the archive entries.
+     * @return the archive data.
+     * @throws IOException if the method fails.
+     */
+    @SafeVarargs
+    private static byte[] createArchive(Entry<String, byte[]>... entries) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ZipOutputStream output = new ZipOutputStream(result)) {
+            for (Entry<String, byte[]> entry : entries) {
+                output.putNextEntry(new ZipEntry(entry.getKey()));
+                output.write(entry.getValue());
+                output.closeEntry();
+            }
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Creates the archive with the stored entries with the data descriptor.
+     * The local file headers do not contain the size of the entries, which is
+     * not supported by the {@link java.util.zip} writer.
+     *
+     * @param entries the archive entries.
+     * @return the archive data.
+     */
+    @SafeVarargs
+    private static byte[] createStoredArchive(Entry<String, byte[]>... entries) {
+        ByteBuffer local = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer central = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        for (Entry<String, byte[]> entry : entries) {
+            byte[] name = text(entry.getKey());
+            byte[] data = entry.getValue();
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            int offset = local.position();
+            local.putInt(0x04034b50).putShort((short) 10).putShort((short) 8).putShort((short) 0).putInt(0)
+                    .putInt(0).putInt(0).putInt(0).putShort((short) name.length).putShort((short) 0).put(name).put(data);
+            local.putInt(0x08074b50).putInt((int) crc.getValue()).putInt(data.length).putInt(data.length);
+            central.putInt(0x02014b50).putShort((short) 10).putShort((short) 10).putShort((short) 8).putShort((short) 0)
+                    .putInt(0).putInt((int) crc.getValue()).putInt(data.length).putInt(data.length)
+                    .putShort((short) name.length).putShort((short) 0).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) 0).putInt(0).putInt(offset).put(name);
+        }
+        int cenOffset = local.position();
+        local.put(central.array(), 0, central.position());
+        local.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) entries.length)
+                .putShort((short) entries.length).putInt(central.position()).putInt(cenOffset).putShort((short) 0);
+        return Arrays.copyOf(local.array(), local.position());
+    }
+
+    /**
+     * Reads the archive with the {@link ZipInputStream}, which checks the
+     * local headers, the data descriptors and the CRC of the entries.
+     *
+     * @param data the archive data.
+     * @return the map of the entry data by the entry name.
+     * @throws IOException if the method fails.
+     */
+    private static Map<String, byte[]> readArchive(byte[] data) throws IOException {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                result.put(entry.getName(), read(input));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the input stream.
+     *
+     * @param input the input stream.
+     * @return the data of the input stream.
+     * @throws IOException if the method fails.
+     */
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * The test mojo with the configured parallelism.
+     */
+    private static final class TestMojo extends AbstractPersistenceMojo {
+
+        /**
+         * The parallelism of the worker pool.
+         */
+        private final int parallelism;
+
+        /**
+         * The default constructor.
+         *
+         * @param parallelism the parallelism of the worker pool.
+         */
+        TestMojo(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        protected ForkJoinPool createPool() {
+            if (parallelism == 1) {
+                return null;
+            }
+            return new ForkJoinPool(parallelism);
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void execute() {
+            // the test mojo is not executed
+        }
+    }
+}
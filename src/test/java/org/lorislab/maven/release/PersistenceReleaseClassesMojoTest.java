@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The tests of the release goal of the project output directory.
+ *
+ * @author Andrej_Petras
+ */
+public class PersistenceReleaseClassesMojoTest {
+
+    /**
+     * The persistence XML file.
+     */
+    private static final String PERSISTENCE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<persistence xmlns=\"http://xmlns.jcp.org/xml/ns/persistence\" version=\"2.1\">\n"
+            + "    <persistence-unit name=\"test\">\n"
+            + "        <properties>\n"
+            + "            <property name=\"hibernate.dialect\" value=\"old\"/>\n"
+            + "        </properties>\n"
+            + "    </persistence-unit>\n"
+            + "</persistence>\n";
+
+    /**
+     * The temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests the release directories of the jar project.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testJar() throws Exception {
+        Path output = execute("jar", true);
+        assertPersistenceXml(output.resolve("dev/META-INF/persistence.xml"), "dev");
+        assertPersistenceXml(output.resolve("prod/META-INF/persistence.xml"), "prod");
+    }
+
+    /**
+     * Tests the release directories of the war project.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testWar() throws Exception {
+        Path output = execute("war", true);
+        assertPersistenceXml(output.resolve("dev/WEB-INF/classes/META-INF/persistence.xml"), "dev");
+        assertPersistenceXml(output.resolve("prod/WEB-INF/classes/META-INF/persistence.xml"), "prod");
+        assertFalse(Files.exists(output.resolve("dev/META-INF")));
+    }
+
+    /**
+     * Tests the project without the persistence XML file and the not
+     * supported packaging.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testNoRelease() throws Exception {
+        assertFalse(Files.exists(execute("jar", false)));
+        assertFalse(Files.exists(execute("ear", true)));
+    }
+
+    /**
+     * Executes the release goal for the classifiers dev and prod.
+     *
+     * @param packaging the project packaging.
+     * @param persistenceXml {@code true} to create the persistence XML file in
+     * the project output directory.
+     * @return the release directory.
+     * @throws Exception if the method fails.
+     */
+    private Path execute(String packaging, boolean persistenceXml) throws Exception {
+        Path root = folder.newFolder().toPath();
+        Path classes = root.resolve("target/classes");
+        Files.createDirectories(classes.resolve("META-INF"));
+        if (persistenceXml) {
+            Files.write(classes.resolve("META-INF/persistence.xml"), PERSISTENCE_XML.getBytes(StandardCharsets.UTF_8));
+        }
+        Map<String, String> classifiers = new LinkedHashMap<>();
+        for (String name : new String[]{"dev", "prod"}) {
+            Path file = root.resolve(name + ".properties");
+            Files.write(file, ("hibernate.dialect=" + name + "\n").getBytes(StandardCharsets.ISO_8859_1));
+            classifiers.put(name, file.toString());
+        }
+
+        MavenProject project = new MavenProject();
+        project.setPackaging(packaging);
+        project.getBuild().setOutputDirectory(classes.toString());
+        Path output = root.resolve("target/persistence-classes");
+
+        PersistenceReleaseClassesMojo mojo = new PersistenceReleaseClassesMojo();
+        PersistenceReleaseMojoTest.setField(mojo, "project", project);
+        PersistenceReleaseMojoTest.setField(mojo, "classifiers", classifiers);
+        PersistenceReleaseMojoTest.setField(mojo, "outputDirectory", output.toString());
+        mojo.execute();
+        return output;
+    }
+
+    /**
+     * Checks the updated persistence XML file.
+     *
+     * @param file the persistence XML file.
+     * @param value the expected value of the updated property.
+     * @throws Exception if the method fails.
+     */
+    private static void assertPersistenceXml(Path file, String value) throws Exception {
+        assertTrue(file.toString(), Files.isRegularFile(file));
+        String xml = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertEquals(PERSISTENCE_XML.replace("value=\"old\"", "value=\"" + value + "\""), xml);
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The tests of the release goal in the package phase.
+ *
+ * @author Andrej_Petras
+ */
+public class PersistenceReleaseMojoTest {
+
+    /**
+     * The persistence XML file.
+     */
+    private static final String PERSISTENCE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<persistence version=\"2.1\" xmlns=\"http://xmlns.jcp.org/xml/ns/persistence\">\n"
+            + "    <persistence-unit name=\"test\">\n"
+            + "        <properties>\n"
+            + "            <property name=\"hibernate.dialect\" value=\"old\"/>\n"
+            + "        </properties>\n"
+            + "    </persistence-unit>\n"
+            + "</persistence>\n";
+
+    /**
+     * The up to date message of the incremental build.
+     */
+    private static final String UP_TO_DATE = "The release archive is up to date: ";
+
+    /**
+     * The temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The build directory.
+     */
+    private Path buildDir;
+
+    /**
+     * The project archive.
+     */
+    private Path artifact;
+
+    /**
+     * The filter property file.
+     */
+    private Path properties;
+
+    /**
+     * The release archive.
+     */
+    private Path release;
+
+    /**
+     * Creates the project archive and the filter property file.
+     *
+     * @throws Exception if the method fails.
+     */
+    @Before
+    public void before() throws Exception {
+        buildDir = folder.newFolder("target").toPath();
+        artifact = buildDir.resolve("app.jar");
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (ZipOutputStream output = new ZipOutputStream(data)) {
+            output.putNextEntry(new ZipEntry("META-INF/persistence.xml"));
+            output.write(PERSISTENCE_XML.getBytes(StandardCharsets.UTF_8));
+            output.closeEntry();
+        }
+        Files.write(artifact, data.toByteArray());
+        properties = folder.newFile("dev.properties").toPath();
+        Files.write(properties, "hibernate.dialect=dev\n".getBytes(StandardCharsets.ISO_8859_1));
+        release = buildDir.resolve("app-dev.jar");
+    }
+
+    /**
+     * Tests the incremental build. The release archive is created again only
+     * if the inputs or the release archive changed.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testIncremental() throws Exception {
+        TestLog log = execute(true);
+        assertFalse(log.contains(UP_TO_DATE));
+        assertTrue(Files.isRegularFile(buildDir.resolve("persistence-release/app-dev.jar.properties")));
+        assertTrue(readPersistenceXml(release).contains("value=\"dev\""));
+
+        // the same inputs
+        log = execute(true);
+        assertTrue(log.contains(UP_TO_DATE + release));
+        assertEquals(1, log.attached.size());
+
+        // the changed filter property file
+        Files.write(properties, "hibernate.dialect=prod\n".getBytes(StandardCharsets.ISO_8859_1));
+        log = execute(true);
+        assertFalse(log.contains(UP_TO_DATE));
+        assertTrue(readPersistenceXml(release).contains("value=\"prod\""));
+
+        // the changed release archive
+        Files.setLastModifiedTime(release, FileTime.fromMillis(Files.getLastModifiedTime(release).toMillis() - 60000));
+        log = execute(true);
+        assertFalse(log.contains(UP_TO_DATE));
+        assertTrue(execute(true).contains(UP_TO_DATE));
+
+        // the changed project archive
+        Files.write(artifact, Files.readAllBytes(artifact), StandardOpenOption.APPEND);
+        assertFalse(execute(true).contains(UP_TO_DATE));
+    }
+
+    /**
+     * Tests the build without the incremental flag.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testNotIncremental() throws Exception {
+        execute(false);
+        TestLog log = execute(false);
+        assertFalse(log.contains(UP_TO_DATE));
+        assertEquals(1, log.attached.size());
+        assertFalse(Files.exists(buildDir.resolve("persistence-release")));
+        assertTrue(readPersistenceXml(release).contains("value=\"dev\""));
+    }
+
+    /**
+     * Executes the release goal for the classifier dev.
+     *
+     * @param incremental the incremental build flag.
+     * @return the log of the execution.
+     * @throws Exception if the method fails.
+     */
+    private TestLog execute(boolean incremental) throws Exception {
+        MavenProject project = new MavenProject();
+        project.setPackaging("jar");
+        project.getBuild().setDirectory(buildDir.toString());
+        project.getBuild().setFinalName("app");
+        project.setArtifact(new DefaultArtifact("org.lorislab", "app", "1.0", "compile", "jar", null, new DefaultArtifactHandler("jar")));
+        project.getArtifact().setFile(artifact.toFile());
+
+        final TestLog log = new TestLog();
+        PersistenceReleasePackageMojo mojo = new PersistenceReleasePackageMojo();
+        mojo.setLog(log);
+        setField(mojo, "project", project);
+        setField(mojo, "projectHelper", new TestProjectHelper(log.attached));
+        setField(mojo, "classifier", "dev");
+        setField(mojo, "properties", properties.toString());
+        setField(mojo, "incremental", incremental);
+        setField(mojo, "threads", 1);
+        mojo.execute();
+        return log;
+    }
+
+    /**
+     * Reads the persistence XML file of the release archive.
+     *
+     * @param file the release archive.
+     * @return the persistence XML file.
+     * @throws IOException if the method fails.
+     */
+    private static String readPersistenceXml(Path file) throws IOException {
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                if (entry.getName().equals("META-INF/persistence.xml")) {
+                    return new String(read(input), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the input stream.
+     *
+     * @param input the input stream.
+     * @return the data of the input stream.
+     * @throws IOException if the method fails.
+     */
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Sets the field of the mojo.
+     *
+     * @param object the mojo.
+     * @param name the field name.
+     * @param value the field value.
+     * @throws Exception if the method fails.
+     */
+    static void setField(Object object, String name, Object value) throws Exception {
+        Class<?> clazz = object.getClass();
+        while (clazz != null) {
+            try {
+                Field field = clazz.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(object, value);
+                return;
+            } catch (NoSuchFieldException ex) {
+                clazz = clazz.getSuperclass();
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    /**
+     * The log which keeps the info messages.
+     */
+    static final class TestLog extends SystemStreamLog {
+
+        /**
+         * The info messages.
+         */
+        final List<String> messages = new ArrayList<>();
+
+        /**
+         * The attached artifacts.
+         */
+        final List<File> attached = new ArrayList<>();
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void info(CharSequence content) {
+            messages.add(content.toString());
+            super.info(content);
+        }
+
+        /**
+         * Returns {@code true} if an info message starts with the text.
+         *
+         * @param text the text.
+         * @return {@code true} if an info message starts with the text.
+         */
+        boolean contains(String text) {
+            for (String message : messages) {
+                if (message.startsWith(text)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The project helper which keeps the attached artifacts.
+     */
+    static final class TestProjectHelper implements MavenProjectHelper {
+
+        /**
+         * The attached artifacts.
+         */
+        private final List<File> attached;
+
+        /**
+         * The default constructor.
+         *
+         * @param attached the attached artifacts.
+         */
+        TestProjectHelper(List<File> attached) {
+            this.attached = attached;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void attachArtifact(MavenProject project, File artifactFile, String artifactClassifier) {
+            attached.add(artifactFile);
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void attachArtifact(MavenProject project, String artifactType, File artifactFile) {
+            attached.add(artifactFile);
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void attachArtifact(MavenProject project, String artifactType, String artifactClassifier, File artifactFile) {
+            attached.add(artifactFile);
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void addResource(MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {
+            // the resources are not used
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void addTestResource(MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {
+            // the resources are not used
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The tests of the update goal in the package phase. The update artifacts
+ * are the system dependencies of the project, which are not resolved by the
+ * repository system.
+ *
+ * @author Andrej_Petras
+ */
+public class PersistenceUpdateMojoTest {
+
+    /**
+     * The persistence XML file.
+     */
+    private static final String PERSISTENCE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<persistence xmlns=\"http://xmlns.jcp.org/xml/ns/persistence\" version=\"2.1\">\n"
+            + "    <persistence-unit name=\"test\">\n"
+            + "        <properties>\n"
+            + "            <property name=\"hibernate.dialect\" value=\"old\"/>\n"
+            + "        </properties>\n"
+            + "    </persistence-unit>\n"
+            + "</persistence>\n";
+
+    /**
+     * The temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The build directory.
+     */
+    private Path buildDir;
+
+    /**
+     * The filter property file.
+     */
+    private Path properties;
+
+    /**
+     * The project dependencies.
+     */
+    private List<Dependency> dependencies;
+
+    /**
+     * Creates the project dependencies and the filter property file.
+     *
+     * @throws Exception if the method fails.
+     */
+    @Before
+    public void before() throws Exception {
+        buildDir = folder.newFolder().toPath();
+        properties = folder.newFile("dev.properties").toPath();
+        Files.write(properties, "hibernate.dialect=dev\n".getBytes(StandardCharsets.ISO_8859_1));
+        dependencies = new ArrayList<>();
+        dependencies.add(dependency("lib", null, "jar", createArchive("META-INF/persistence.xml", PERSISTENCE_XML)));
+        dependencies.add(dependency("lib", "tests", "jar", createArchive("META-INF/persistence.xml", PERSISTENCE_XML)));
+        dependencies.add(dependency("web", null, "war", createArchive("WEB-INF/classes/META-INF/persistence.xml", PERSISTENCE_XML)));
+        dependencies.add(dependency("api", null, "jar", createArchive("a/Api.class", "api")));
+    }
+
+    /**
+     * Tests the update of several artifacts in one execution.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testUpdateArtifacts() throws Exception {
+        for (int threads : new int[]{1, 4}) {
+            buildDir = folder.newFolder().toPath();
+            Path output = buildDir.resolve("persistence-update");
+            PersistenceUpdatePackageMojo mojo = createMojo(threads);
+            PersistenceReleaseMojoTest.setField(mojo, "updateArtifact", "org.lorislab.test:lib");
+            PersistenceReleaseMojoTest.setField(mojo, "updateArtifacts", Arrays.asList("org.lorislab.test:web", "org.lorislab.test:api", "org.lorislab.test:lib"));
+            PersistenceReleaseMojoTest.setField(mojo, "deleteBackup", false);
+            mojo.execute();
+
+            assertPersistenceXml(output.resolve("lib-1.0.jar"), "META-INF/persistence.xml");
+            assertPersistenceXml(output.resolve("web-1.0.war"), "WEB-INF/classes/META-INF/persistence.xml");
+            assertArrayEquals(Files.readAllBytes(folder.getRoot().toPath().resolve("api.jar")), Files.readAllBytes(output.resolve("api-1.0.jar")));
+            assertArrayEquals(Files.readAllBytes(folder.getRoot().toPath().resolve("lib.jar")), Files.readAllBytes(output.resolve("lib.jar-backup")));
+            assertTrue(Files.exists(output.resolve("web.war-backup")));
+            // the artifact without a persistence XML file has no backup
+            assertFalse(Files.exists(output.resolve("api.jar-backup")));
+        }
+    }
+
+    /**
+     * Tests the update artifacts with the same output file name.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testUpdateArtifactsCollision() throws Exception {
+        PersistenceUpdatePackageMojo mojo = createMojo(1);
+        PersistenceReleaseMojoTest.setField(mojo, "updateArtifacts", Arrays.asList("org.lorislab.test:lib", "org.lorislab.test:lib:tests:jar"));
+        assertExecutionError(mojo, "have the same output file name lib-1.0.jar");
+        assertFalse(Files.exists(buildDir.resolve("persistence-update")));
+
+        mojo = createMojo(1);
+        PersistenceReleaseMojoTest.setField(mojo, "updateArtifacts", Arrays.asList("org.lorislab.test:lib", "org.lorislab.test:web"));
+        PersistenceReleaseMojoTest.setField(mojo, "filename", "update.jar");
+        assertExecutionError(mojo, "The filename can be used only with one update artifact.");
+
+        assertExecutionError(createMojo(1), "The parameter updateArtifact or updateArtifacts is required.");
+    }
+
+    /**
+     * Tests the key forms of the update artifact. The key without the
+     * classifier and the type selects the first dependency with the group and
+     * artifact id.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testFindDependency() throws Exception {
+        Path output = execute("org.lorislab.test:lib");
+        assertTrue(Files.exists(output.resolve("lib.jar-backup")));
+        assertFalse(Files.exists(output.resolve("lib-tests.jar-backup")));
+
+        output = execute("org.lorislab.test:lib:tests:jar");
+        assertTrue(Files.exists(output.resolve("lib-tests.jar-backup")));
+        assertFalse(Files.exists(output.resolve("lib.jar-backup")));
+        assertPersistenceXml(output.resolve("lib-1.0.jar"), "META-INF/persistence.xml");
+
+        output = execute("org.lorislab.test:web::war");
+        assertTrue(Files.exists(output.resolve("web.war-backup")));
+        assertPersistenceXml(output.resolve("web-1.0.war"), "WEB-INF/classes/META-INF/persistence.xml");
+    }
+
+    /**
+     * Tests the update artifact in the wrong format and the update artifact
+     * which is not the dependency of the project.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testFindDependencyError() throws Exception {
+        PersistenceUpdatePackageMojo mojo = createMojo(1);
+        PersistenceReleaseMojoTest.setField(mojo, "updateArtifact", "org.lorislab.test:lib:jar");
+        assertExecutionError(mojo, "is not in the format <groupId>:<artifactId> or <groupId>:<artifactId>:<classifier>:<type>.");
+
+        mojo = createMojo(1);
+        PersistenceReleaseMojoTest.setField(mojo, "updateArtifact", "org.lorislab.test:missing");
+        assertExecutionError(mojo, "The update artifact org.lorislab.test:missing is not a dependency of the project.");
+
+        mojo = createMojo(1);
+        PersistenceReleaseMojoTest.setField(mojo, "updateArtifact", "org.lorislab.test:web:tests:war");
+        assertExecutionError(mojo, "is not a dependency of the project.");
+        assertFalse(Files.exists(buildDir.resolve("persistence-update")));
+    }
+
+    /**
+     * Executes the update goal for the update artifact and keeps the backup
+     * file.
+     *
+     * @param updateArtifact the update artifact.
+     * @return the output directory.
+     * @throws Exception if the method fails.
+     */
+    private Path execute(String updateArtifact) throws Exception {
+        buildDir = folder.newFolder().toPath();
+        PersistenceUpdatePackageMojo mojo = createMojo(1);
+        PersistenceReleaseMojoTest.setField(mojo, "updateArtifact", updateArtifact);
+        PersistenceReleaseMojoTest.setField(mojo, "deleteBackup", false);
+        mojo.execute();
+        return buildDir.resolve("persistence-update");
+    }
+
+    /**
+     * Checks that the execution fails with the message.
+     *
+     * @param mojo the mojo.
+     * @param message the expected part of the error message.
+     * @throws Exception if the method fails.
+     */
+    private static void assertExecutionError(PersistenceUpdatePackageMojo mojo, String message) throws Exception {
+        try {
+            mojo.execute();
+            fail("The execution has to fail with: " + message);
+        } catch (MojoExecutionException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(message));
+        }
+    }
+
+    /**
+     * Checks the updated persistence XML file of the archive.
+     *
+     * @param file the archive.
+     * @param name the persistence XML entry.
+     * @throws IOException if the method fails.
+     */
+    private static void assertPersistenceXml(Path file, String name) throws IOException {
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                if (entry.getName().equals(name)) {
+                    String xml = new String(read(input), StandardCharsets.UTF_8);
+                    assertEquals(PERSISTENCE_XML.replace("value=\"old\"", "value=\"dev\""), xml);
+                    return;
+                }
+            }
+        }
+        fail("Missing the entry " + name + " in the archive " + file);
+    }
+
+    /**
+     * Creates the update mojo.
+     *
+     * @param threads the number of worker threads.
+     * @return the update mojo.
+     * @throws Exception if the method fails.
+     */
+    private PersistenceUpdatePackageMojo createMojo(int threads) throws Exception {
+        MavenProject project = new MavenProject();
+        project.setPackaging("pom");
+        project.getBuild().setDirectory(buildDir.toString());
+        project.setArtifact(new DefaultArtifact("org.lorislab.test", "app", "1.0", "compile", "pom", null, new DefaultArtifactHandler("pom")));
+        project.setDependencies(dependencies);
+
+        PersistenceUpdatePackageMojo mojo = new PersistenceUpdatePackageMojo();
+        PersistenceReleaseMojoTest.setField(mojo, "project", project);
+        PersistenceReleaseMojoTest.setField(mojo, "properties", properties.toString());
+        PersistenceReleaseMojoTest.setField(mojo, "deleteBackup", true);
+        PersistenceReleaseMojoTest.setField(mojo, "threads", threads);
+        return mojo;
+    }
+
+    /**
+     * Creates the system dependency.
+     *
+     * @param artifactId the artifact id.
+     * @param classifier the classifier.
+     * @param type the type.
+     * @param data the archive data.
+     * @return the system dependency.
+     * @throws IOException if the method fails.
+     */
+    private Dependency dependency(String artifactId, String classifier, String type, byte[] data) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(artifactId + (classifier == null ? "" : "-" + classifier) + "." + type);
+        Files.write(file, data);
+        Dependency result = new Dependency();
+        result.setGroupId("org.lorislab.test");
+        result.setArtifactId(artifactId);
+        result.setVersion("1.0");
+        result.setClassifier(classifier);
+        result.setType(type);
+        result.setScope("system");
+        result.setSystemPath(file.toString());
+        return result;
+    }
+
+    /**
+     * Creates the archive with one entry.
+     *
+     * @param name the entry name.
+     * @param data the entry text.
+     * @return the archive data.
+     * @throws IOException if the method fails.
+     */
+    private static byte[] createArchive(String name, String data) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ZipOutputStream output = new ZipOutputStream(result)) {
+            output.putNextEntry(new ZipEntry(name));
+            output.write(data.getBytes(StandardCharsets.UTF_8));
+            output.closeEntry();
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Reads the input stream.
+     *
+     * @param input the input stream.
+     * @return the data of the input stream.
+     * @throws IOException if the method fails.
+     */
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+        return output.toByteArray();
+    }
+}
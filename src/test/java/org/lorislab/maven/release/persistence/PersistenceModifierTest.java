@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The tests of the persistence.xml rewrite.
+ *
+ * @author Andrej_Petras
+ */
+public class PersistenceModifierTest {
+
+    /**
+     * The persistence.xml file of the version 2.1.
+     */
+    private static final String PERSISTENCE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!-- header -->\n"
+            + "<persistence version=\"2.1\" xmlns=\"http://xmlns.jcp.org/xml/ns/persistence\">\n"
+            + "    <persistence-unit name=\"first\">\n"
+            + "        <!-- unit -->\n"
+            + "        <jta-data-source>jdbc/test</jta-data-source>\n"
+            + "        <exclude-unlisted-classes></exclude-unlisted-classes>\n"
+            + "        <properties>\n"
+            + "            <property name=\"removed\" value=\"removed\"/>\n"
+            + "            <property name=\"updated\" value=\"old\"></property>\n"
+            + "            <property name=\"kept\" value=\"kept\"/>\n"
+            + "        </properties>\n"
+            + "    </persistence-unit>\n"
+            + "    <persistence-unit name=\"second\">\n"
+            + "        <class>org.lorislab.Entity</class>\n"
+            + "    </persistence-unit>\n"
+            + "</persistence>\n";
+
+    /**
+     * The expected persistence.xml file.
+     */
+    private static final String EXPECTED_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!-- header -->\n"
+            + "<persistence xmlns=\"http://xmlns.jcp.org/xml/ns/persistence\" version=\"2.1\">\n"
+            + "    <persistence-unit name=\"first\">\n"
+            + "        <!-- unit -->\n"
+            + "        <jta-data-source>jdbc/test</jta-data-source>\n"
+            + "        <exclude-unlisted-classes/>\n"
+            + "        <properties>\n"
+            + "            <property name=\"updated\" value=\"new\"/>\n"
+            + "            <property name=\"kept\" value=\"kept\"/>\n"
+            + "            <property name=\"added\" value=\"added\"/>\n"
+            + "        </properties>\n"
+            + "    </persistence-unit>\n"
+            + "    <persistence-unit name=\"second\">\n"
+            + "        <class>org.lorislab.Entity</class>\n"
+            + "        <properties>\n"
+            + "            <property name=\"added\" value=\"added\"/>\n"
+            + "            <property name=\"updated\" value=\"new\"/>\n"
+            + "        </properties>\n"
+            + "    </persistence-unit>\n"
+            + "</persistence>\n";
+
+    /**
+     * Tests the update, the removal and the addition of the properties. The
+     * white space and the comments are kept, the missing properties element
+     * is created and the element without content is written as the empty
+     * element.
+     */
+    @Test
+    public void testModifier() {
+        assertEquals(EXPECTED_XML, modifier(PERSISTENCE_XML, values()));
+    }
+
+    /**
+     * Tests the persistence.xml without changed properties.
+     */
+    @Test
+    public void testModifierEmptyValues() {
+        Map<String, String> values = new HashMap<>();
+        values.put("missing", "");
+        String xml = modifier(PERSISTENCE_XML, values);
+        assertTrue(xml, xml.contains("<property name=\"removed\" value=\"removed\"/>"));
+        assertTrue(xml, xml.contains("<property name=\"updated\" value=\"old\"/>"));
+        assertTrue(xml, xml.contains("        <class>org.lorislab.Entity</class>\n    </persistence-unit>"));
+    }
+
+    /**
+     * Tests the selection of the modifier by the persistence version.
+     */
+    @Test
+    public void testModifierVersion() {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<persistence version=\"1.0\" xmlns=\"http://java.sun.com/xml/ns/persistence\">\n"
+                + "  <persistence-unit name=\"test\">\n"
+                + "    <properties>\n"
+                + "      <property name=\"updated\" value=\"old\"/>\n"
+                + "    </properties>\n"
+                + "  </persistence-unit>\n"
+                + "</persistence>\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        String version = PersistenceModifier.modifier(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), output, values(), modifiers());
+        assertEquals("1.0", version);
+        assertEquals(xml.replace("version=\"1.0\" xmlns=\"http://java.sun.com/xml/ns/persistence\"", "xmlns=\"http://java.sun.com/xml/ns/persistence\" version=\"1.0\"")
+                .replace("value=\"old\"/>\n", "value=\"new\"/>\n      <property name=\"added\" value=\"added\"/>\n"),
+                new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests the not supported persistence version.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testModifierNotSupportedVersion() {
+        modifier(PERSISTENCE_XML.replace("version=\"2.1\"", "version=\"9.9\""), values());
+    }
+
+    /**
+     * Modifies the persistence.xml file.
+     *
+     * @param xml the persistence.xml file.
+     * @param values the map of properties values.
+     * @return the modified persistence.xml file.
+     */
+    private static String modifier(String xml, Map<String, String> values) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PersistenceModifier.modifier(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), output, values, modifiers());
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the properties values. The empty value removes the property.
+     *
+     * @return the properties values.
+     */
+    private static Map<String, String> values() {
+        Map<String, String> result = new HashMap<>();
+        result.put("removed", "");
+        result.put("updated", "new");
+        result.put("added", "added");
+        result.put("missing", "");
+        return result;
+    }
+
+    /**
+     * Creates the persistence modifiers by the version.
+     *
+     * @return the persistence modifiers.
+     */
+    private static Map<String, PersistenceModifier> modifiers() {
+        Map<String, PersistenceModifier> result = new HashMap<>();
+        result.put("1.0", new PersistenceModifier10());
+        result.put("2.0", new PersistenceModifier20());
+        result.put("2.1", new PersistenceModifier21());
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The tests of the cache of the updated nested archives.
+ *
+ * @author Andrej_Petras
+ */
+public class ArchiveCacheTest {
+
+    /**
+     * The temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests the cache hits and misses.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testGet() throws Exception {
+        ArchiveCache cache = new ArchiveCache(folder.getRoot().toPath(), 1024);
+        String key = ArchiveCache.createKey("module", "values");
+        assertEquals(key, ArchiveCache.createKey("module", "values"));
+        assertNotEquals(key, ArchiveCache.createKey("module", "other"));
+
+        assertNull(cache.get(key));
+        cache.put(key, new byte[]{1, 2, 3}, Arrays.asList("META-INF/persistence.xml", "lib/inner.jar!/META-INF/persistence.xml"));
+        ArchiveCache.Entry entry = cache.get(key);
+        assertNotNull(entry);
+        assertArrayEquals(new byte[]{1, 2, 3}, entry.getData());
+        assertEquals(Arrays.asList("META-INF/persistence.xml", "lib/inner.jar!/META-INF/persistence.xml"), entry.getChanges());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // the cache directory is shared by the other cache instance
+        assertNotNull(new ArchiveCache(folder.getRoot().toPath(), 1024).get(key));
+    }
+
+    /**
+     * Tests the eviction of the least recently used entries.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testEviction() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        ArchiveCache cache = new ArchiveCache(dir, 250);
+        long time = System.currentTimeMillis();
+        cache.put("a", new byte[100], Collections.<String>emptyList());
+        cache.put("b", new byte[100], Collections.<String>emptyList());
+        Files.setLastModifiedTime(dir.resolve("a.zip"), FileTime.fromMillis(time - 20000));
+        Files.setLastModifiedTime(dir.resolve("b.zip"), FileTime.fromMillis(time - 10000));
+
+        // the hit makes the oldest entry the most recently used entry
+        assertNotNull(cache.get("a"));
+        cache.put("c", new byte[100], Collections.<String>emptyList());
+
+        assertNull(cache.get("b"));
+        assertFalse(Files.exists(dir.resolve("b.changes")));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+    }
+}
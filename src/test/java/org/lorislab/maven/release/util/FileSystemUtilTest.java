@@ -0,0 +1,465 @@
+/*
+ * Copyright 2015 Andrej_Petras.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lorislab.maven.release.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lorislab.maven.release.zip.ZipArchive;
+import org.lorislab.maven.release.zip.ZipArchiveEntry;
+import org.lorislab.maven.release.zip.ZipCompression;
+import org.lorislab.maven.release.zip.ZipFanOutCallback;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The round-trip tests of the archive copy. The target archives are checked
+ * with the {@link java.util.zip} reader.
+ *
+ * @author Andrej_Petras
+ */
+public class FileSystemUtilTest {
+
+    /**
+     * The size of the large entry, which is larger than two parallel deflate
+     * blocks of 256 KB, so the entry is split into the deflate blocks.
+     */
+    private static final int LARGE_SIZE = 1536 * 1024 + 123;
+
+    /**
+     * The temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The worker pool.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Creates the worker pool.
+     */
+    @Before
+    public void before() {
+        pool = new ForkJoinPool(4);
+    }
+
+    /**
+     * Shuts down the worker pool.
+     */
+    @After
+    public void after() {
+        pool.shutdown();
+    }
+
+    /**
+     * Tests the copy of the stored and deflated entries with data descriptors
+     * without change.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testCopyUnchanged() throws Exception {
+        Map<String, byte[]> entries = createEntries();
+        Path source = createArchive(entries, "stored.txt");
+        Path target = folder.getRoot().toPath().resolve("target.zip");
+
+        Set<String> changes = FileSystemUtil.copyZip(source, Collections.singletonList(target), null, null, new ZipCompression(), SyncPolicy.NONE, pool);
+
+        assertTrue(changes.isEmpty());
+        assertArchive(target, entries);
+        try (ZipFile zip = new ZipFile(target.toFile())) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("stored.txt").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("deflated.txt").getMethod());
+        }
+    }
+
+    /**
+     * Tests the sequential and parallel rewrite of the stored, deflated and
+     * large entries.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testCopyChanged() throws Exception {
+        Map<String, byte[]> entries = createEntries();
+        Path source = createArchive(entries, "stored.txt");
+
+        final Map<String, byte[]> changed = new LinkedHashMap<>(entries);
+        changed.put("stored.txt", text("The changed stored entry."));
+        changed.put("deflated.txt", text("The changed deflated entry."));
+        changed.put("large.bin", createData(LARGE_SIZE, 7));
+
+        for (ForkJoinPool workers : Arrays.asList(null, pool)) {
+            Path target = folder.newFolder().toPath().resolve("target.zip");
+            Set<String> changes = FileSystemUtil.copyZip(source, Collections.singletonList(target), null, new ZipFanOutCallback() {
+                @Override
+                public byte[][] execute(ZipArchive archive, ZipArchiveEntry entry) throws Exception {
+                    if (entry.isDirectory() || Arrays.equals(changed.get(entry.getName()), archive.readEntry(entry))) {
+                        return null;
+                    }
+                    return new byte[][]{changed.get(entry.getName())};
+                }
+            }, new ZipCompression(), SyncPolicy.NONE, workers);
+
+            assertEquals(3, changes.size());
+            assertArchive(target, changed);
+        }
+    }
+
+    /**
+     * Tests the copy of the archive to several target archives and target
+     * directories in one pass.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testCopyTargets() throws Exception {
+        Map<String, byte[]> entries = createEntries();
+        Path source = createArchive(entries, "stored.txt");
+        Path root = folder.getRoot().toPath();
+        List<Path> targets = Arrays.asList(root.resolve("dev.zip"), root.resolve("prod.zip"));
+        List<Path> targetDirs = Arrays.asList(root.resolve("dev"), root.resolve("prod"));
+
+        final Map<String, byte[]> dev = new LinkedHashMap<>(entries);
+        dev.put("deflated.txt", text("dev"));
+        final Map<String, byte[]> prod = new LinkedHashMap<>(entries);
+        prod.put("stored.txt", text("prod"));
+
+        FileSystemUtil.copyZip(source, targets, targetDirs, new ZipFanOutCallback() {
+            @Override
+            public byte[][] execute(ZipArchive archive, ZipArchiveEntry entry) throws Exception {
+                if (entry.getName().equals("deflated.txt")) {
+                    return new byte[][]{dev.get(entry.getName()), null};
+                }
+                if (entry.getName().equals("stored.txt")) {
+                    return new byte[][]{null, prod.get(entry.getName())};
+                }
+                return null;
+            }
+        }, new ZipCompression(), SyncPolicy.NONE, pool);
+
+        assertArchive(targets.get(0), dev);
+        assertArchive(targets.get(1), prod);
+        assertDirectory(targetDirs.get(0), dev);
+        assertDirectory(targetDirs.get(1), prod);
+    }
+
+    /**
+     * Tests the failed copy. The previous target archive and target directory
+     * stay untouched and the temporary files are deleted.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testCopyRollback() throws Exception {
+        Map<String, byte[]> entries = createEntries();
+        Path source = createArchive(entries, "stored.txt");
+        Path root = folder.newFolder().toPath();
+        Path target = root.resolve("target.zip");
+        Path targetDir = root.resolve("target");
+        Files.write(target, text("previous"));
+        Files.createDirectories(targetDir);
+        Files.write(targetDir.resolve("previous.txt"), text("previous"));
+
+        for (ForkJoinPool workers : Arrays.asList(null, pool)) {
+            try {
+                FileSystemUtil.copyZip(source, Collections.singletonList(target), Collections.singletonList(targetDir), new ZipFanOutCallback() {
+                    @Override
+                    public byte[][] execute(ZipArchive archive, ZipArchiveEntry entry) throws Exception {
+                        if (entry.getName().equals("empty.txt")) {
+                            throw new IllegalStateException("The failed update of the entry " + entry.getName());
+                        }
+                        return null;
+                    }
+                }, new ZipCompression(), SyncPolicy.NONE, workers);
+                fail("The copy has to fail");
+            } catch (RuntimeException ex) {
+                assertNotNull(ex.getCause());
+            }
+            assertArrayEquals(text("previous"), Files.readAllBytes(target));
+            assertArrayEquals(text("previous"), Files.readAllBytes(targetDir.resolve("previous.txt")));
+            assertEquals(Arrays.asList("target", "target.zip"), list(root));
+        }
+    }
+
+    /**
+     * Tests the publication of the target archive and the target directory
+     * which replaces the previous target archive and the whole previous
+     * target directory.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testCopyPublish() throws Exception {
+        Map<String, byte[]> entries = createEntries();
+        Path source = createArchive(entries, "stored.txt");
+        Path root = folder.newFolder().toPath();
+        Path target = root.resolve("target.zip");
+        Path targetDir = root.resolve("target");
+        Files.write(target, text("previous"));
+        Files.createDirectories(targetDir);
+        Files.write(targetDir.resolve("previous.txt"), text("previous"));
+
+        FileSystemUtil.copyZip(source, Collections.singletonList(target), Collections.singletonList(targetDir), null,
+                new ZipCompression(), SyncPolicy.DIRECTORY, pool);
+
+        assertArchive(target, entries);
+        assertDirectory(targetDir, entries);
+        assertFalse(Files.exists(targetDir.resolve("previous.txt")));
+        assertEquals(Arrays.asList("target", "target.zip"), list(root));
+
+        FileSystemUtil.writeFile(target, text("written"), SyncPolicy.FILE);
+        assertArrayEquals(text("written"), Files.readAllBytes(target));
+        assertEquals(Arrays.asList("target", "target.zip"), list(root));
+    }
+
+    /**
+     * Tests the archive in the not supported ZIP64 format.
+     *
+     * @throws Exception if the test fails.
+     */
+    @Test
+    public void testCopyZip64() throws Exception {
+        // the end of central directory record with the ZIP64 markers
+        ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) 0xFFFF).putShort((short) 0xFFFF)
+                .putInt(-1).putInt(-1).putShort((short) 0);
+        Path source = folder.newFile().toPath();
+        Files.write(source, end.array());
+        Path target = folder.getRoot().toPath().resolve("target.zip");
+        try {
+            FileSystemUtil.copyZip(source, Collections.singletonList(target), null, null, new ZipCompression(), SyncPolicy.NONE, null);
+            fail("The ZIP64 archive is not supported");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getCause().getMessage(), ex.getCause().getMessage().contains("ZIP64"));
+        }
+        assertFalse(Files.exists(target));
+    }
+
+    /**
+     * Creates the entries of the test archive.
+     *
+     * @return the map of the entry data by the entry name.
+     */
+    private static Map<String, byte[]> createEntries() {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        result.put("META-INF/", null);
+        result.put("stored.txt", text("The stored entry."));
+        result.put("deflated.txt", text("The deflated entry with a data descriptor."));
+        result.put("empty.txt", new byte[0]);
+        result.put("large.bin", createData(LARGE_SIZE, 3));
+        return result;
+    }
+
+    /**
+     * Creates the archive with the {@link java.util.zip} writer. The deflated
+     * entries are written with the data descriptor.
+     *
+     * @param entries the map of the entry data by the entry name.
+     * @param stored the names of the stored entries.
+     * @return the archive file.
+     * @throws IOException if the method fails.
+     */
+    private Path createArchive(Map<String, byte[]> entries, String... stored) throws IOException {
+        Path result = folder.newFile().toPath();
+        List<String> storedNames = Arrays.asList(stored);
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(result))) {
+            for (Entry<String, byte[]> item : entries.entrySet()) {
+                ZipEntry entry = new ZipEntry(item.getKey());
+                byte[] data = item.getValue();
+                if (data != null && storedNames.contains(item.getKey())) {
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(data.length);
+                    entry.setCrc(crc.getValue());
+                }
+                output.putNextEntry(entry);
+                if (data != null) {
+                    output.write(data);
+                }
+                output.closeEntry();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks the archive with the {@link java.util.zip} readers. The
+     * {@link ZipInputStream} checks the local headers, the data descriptors
+     * and the CRC of the entries.
+     *
+     * @param file the archive file.
+     * @param entries the expected entry data by the entry name.
+     * @throws IOException if the method fails.
+     */
+    private static void assertArchive(Path file, Map<String, byte[]> entries) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertEquals(entries.size(), zip.size());
+            Enumeration<? extends ZipEntry> iter = zip.entries();
+            for (String name : entries.keySet()) {
+                assertEquals(name, iter.nextElement().getName());
+            }
+            for (Entry<String, byte[]> item : entries.entrySet()) {
+                ZipEntry entry = zip.getEntry(item.getKey());
+                assertNotNull(item.getKey(), entry);
+                if (item.getValue() != null) {
+                    try (InputStream input = zip.getInputStream(entry)) {
+                        assertArrayEquals(item.getKey(), item.getValue(), read(input));
+                    }
+                }
+            }
+        }
+        try (ZipInputStream input = new ZipInputStream(Files.newInputStream(file))) {
+            int count = 0;
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                byte[] data = entries.get(entry.getName());
+                if (data != null) {
+                    assertArrayEquals(entry.getName(), data, read(input));
+                }
+                count++;
+            }
+            assertEquals(entries.size(), count);
+        }
+    }
+
+    /**
+     * Checks the extracted directory.
+     *
+     * @param dir the directory.
+     * @param entries the expected entry data by the entry name.
+     * @throws IOException if the method fails.
+     */
+    private static void assertDirectory(Path dir, Map<String, byte[]> entries) throws IOException {
+        for (Entry<String, byte[]> item : entries.entrySet()) {
+            Path file = dir.resolve(item.getKey());
+            if (item.getValue() == null) {
+                assertTrue(item.getKey(), Files.isDirectory(file));
+            } else {
+                assertFalse(item.getKey(), Files.isDirectory(file));
+                assertArrayEquals(item.getKey(), item.getValue(), Files.readAllBytes(file));
+            }
+        }
+    }
+
+    /**
+     * Lists the sorted names of the directory.
+     *
+     * @param dir the directory.
+     * @return the sorted names of the directory.
+     * @throws IOException if the method fails.
+     */
+    private static List<String> list(Path dir) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                result.add(path.getFileName().toString());
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Reads the input stream.
+     *
+     * @param input the input stream.
+     * @return the data of the input stream.
+     * @throws IOException if the method fails.
+     */
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        copy(input, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Copies the input stream to the output stream.
+     *
+     * @param input the input stream.
+     * @param output the output stream.
+     * @throws IOException if the method fails.
+     */
+    private static void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+    }
+
+    /**
+     * Creates the test data. The data contains compressible and random parts.
+     *
+     * @param size the size of the data.
+     * @param seed the random seed.
+     * @return the test data.
+     */
+    private static byte[] createData(int size, long seed) {
+        byte[] result = new byte[size];
+        Random random = new Random(seed);
+        for (int i = 0; i < size; i++) {
+            result[i] = (i / 4096) % 2 == 0 ? (byte) random.nextInt() : (byte) ('a' + i % 26);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the UTF-8 data of the text.
+     *
+     * @param text the text.
+     * @return the UTF-8 data.
+     */
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}